@@ -2,8 +2,10 @@ package com.example.api_sell_clothes;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class ApiSellClothesApplication {
 
     public static void main(String[] args) {
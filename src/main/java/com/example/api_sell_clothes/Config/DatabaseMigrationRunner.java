@@ -0,0 +1,136 @@
+package com.example.api_sell_clothes.Config;
+
+import com.example.api_sell_clothes.Entity.IdAllocation;
+import com.example.api_sell_clothes.Entity.OrderStatus;
+import com.example.api_sell_clothes.Service.SalesRollupService;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Các bước chuyển đổi schema mà ddl-auto=update không tự làm được, chạy một lần khi khởi động. Mọi bước đều idempotent.
+ * <p>
+ * Chạy ngay khi bean này được khởi tạo: phụ thuộc EntityManagerFactory nên Hibernate đã cập nhật schema xong,
+ * và các bean ghi dữ liệu lúc khởi động (ví dụ {@code RoleService#initRoles}) khai báo
+ * {@code @DependsOn(DatabaseMigrationRunner.BEAN_NAME)} để không lấy id từ sequence chưa được căn chỉnh.
+ */
+@Slf4j
+@Component(DatabaseMigrationRunner.BEAN_NAME)
+@RequiredArgsConstructor
+public class DatabaseMigrationRunner implements InitializingBean {
+
+    public static final String BEAN_NAME = "databaseMigrationRunner";
+
+    private record IdColumn(String table, String column) {
+        String sequence() {
+            return table + "_seq";
+        }
+    }
+
+    private static final List<IdColumn> SEQUENCE_ID_COLUMNS = List.of(
+            new IdColumn("users", "user_id"),
+            new IdColumn("roles", "role_id"),
+            new IdColumn("permissions", "permission_id"),
+            new IdColumn("categories", "category_id"),
+            new IdColumn("products", "product_id"),
+            new IdColumn("orders", "order_id"),
+            new IdColumn("order_items", "order_item_id"),
+            new IdColumn("payments", "payment_id"),
+            new IdColumn("payment_methods", "payment_method_id")
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SalesRollupService salesRollupService;
+    // Chỉ để bảo đảm thứ tự: schema đã được Hibernate tạo/cập nhật trước khi migration chạy
+    private final EntityManagerFactory entityManagerFactory;
+
+    @Override
+    public void afterPropertiesSet() {
+        SEQUENCE_ID_COLUMNS.forEach(this::migrateToSequence);
+        migrateOrderStatusToSmallint();
+        createSalesRollupTables();
+    }
+
+    /**
+     * Chuyển cột id từ IDENTITY sang sequence dùng chung với Hibernate (pooled-lo):
+     * tạo sequence với INCREMENT BY = kích thước khối, đẩy sequence vượt qua id lớn nhất hiện có,
+     * và bỏ IDENTITY để không còn hai nguồn sinh id cho cùng một bảng.
+     */
+    private void migrateToSequence(IdColumn idColumn) {
+        if (!tableExists(idColumn.table())) {
+            return;
+        }
+        String sequence = idColumn.sequence();
+        int allocationSize = IdAllocation.ALLOCATION_SIZE;
+
+        jdbcTemplate.execute("CREATE SEQUENCE IF NOT EXISTS " + sequence
+                + " START WITH 1 INCREMENT BY " + allocationSize);
+        jdbcTemplate.execute("ALTER SEQUENCE " + sequence + " INCREMENT BY " + allocationSize);
+
+        Long maxId = jdbcTemplate.queryForObject(
+                "SELECT COALESCE(MAX(" + idColumn.column() + "), 0) FROM " + idColumn.table(), Long.class);
+        Map<String, Object> state = jdbcTemplate.queryForMap("SELECT last_value, is_called FROM " + sequence);
+        long lastValue = ((Number) state.get("last_value")).longValue();
+        boolean isCalled = Boolean.TRUE.equals(state.get("is_called"));
+
+        // Giá trị nextval kế tiếp phải lớn hơn mọi id đã dùng
+        long nextValue = isCalled ? lastValue + allocationSize : lastValue;
+        if (nextValue <= maxId) {
+            jdbcTemplate.queryForObject("SELECT setval(?, ?, false)", Long.class, sequence, maxId + 1);
+            log.info("Đã căn chỉnh sequence {} bắt đầu từ {}", sequence, maxId + 1);
+        }
+
+        jdbcTemplate.execute("ALTER TABLE " + idColumn.table()
+                + " ALTER COLUMN " + idColumn.column() + " DROP IDENTITY IF EXISTS");
+    }
+
+    /**
+     * Đổi cột orders.status từ varchar sang smallint theo {@link OrderStatus#getCode()}.
+     * Giá trị không nhận ra được chuyển thành NULL và vi phạm NOT NULL, nên migration dừng thay vì đoán sai trạng thái.
+     * Chỉ mục (status, order_date) được PostgreSQL dựng lại cùng lúc đổi kiểu.
+     */
+    private void migrateOrderStatusToSmallint() {
+        List<String> types = jdbcTemplate.queryForList(
+                "SELECT data_type FROM information_schema.columns "
+                        + "WHERE table_schema = current_schema() AND table_name = 'orders' AND column_name = 'status'",
+                String.class);
+        if (types.isEmpty() || "smallint".equals(types.get(0))) {
+            return;
+        }
+
+        String mapping = Arrays.stream(OrderStatus.values())
+                .map(status -> "WHEN '" + status.getValue() + "' THEN " + status.getCode())
+                .collect(Collectors.joining(" "));
+        jdbcTemplate.execute("ALTER TABLE orders ALTER COLUMN status DROP DEFAULT");
+        jdbcTemplate.execute("ALTER TABLE orders ALTER COLUMN status TYPE smallint "
+                + "USING (CASE lower(trim(status)) " + mapping + " END)");
+        log.info("Đã chuyển orders.status sang smallint");
+    }
+
+    /**
+     * Bảng rollup doanh số theo giờ chỉ được ghi/đọc bằng SQL (upsert, date_trunc) nên tạo ở đây thay vì qua entity.
+     * Chạy sau bước đổi kiểu status vì backfill lọc theo mã trạng thái.
+     */
+    private void createSalesRollupTables() {
+        if (!tableExists("orders")) {
+            return;
+        }
+        jdbcTemplate.execute(SalesRollupService.CREATE_HOURLY_TABLE_SQL);
+        jdbcTemplate.execute(SalesRollupService.CREATE_PRODUCT_HOURLY_TABLE_SQL);
+        jdbcTemplate.execute(SalesRollupService.CREATE_PRODUCT_HOURLY_CATEGORY_INDEX_SQL);
+        salesRollupService.backfillIfEmpty();
+    }
+
+    private boolean tableExists(String table) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT to_regclass(?) IS NOT NULL", Boolean.class, table));
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.api_sell_clothes.Config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Thực thi {@link RetryOnOptimisticLock}: bắt OptimisticLockingFailureException (gồm cả
+ * ObjectOptimisticLockingFailureException khi commit) và chạy lại với backoff lũy thừa có jitter.
+ * <p>
+ * Order nhỏ hơn advice @Transactional nên mỗi lần thử là một transaction mới, đọc lại version mới nhất.
+ * Metric "optimistic.lock.conflicts" (tag operation, outcome=retried|exhausted) cho thấy điểm tranh chấp.
+ */
+@Slf4j
+@Aspect
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 1)
+@RequiredArgsConstructor
+public class OptimisticLockRetryAspect {
+
+    private final MeterRegistry meterRegistry;
+
+    @Around("@annotation(retry)")
+    public Object retryOnConflict(ProceedingJoinPoint joinPoint, RetryOnOptimisticLock retry) throws Throwable {
+        // Đang trong transaction của caller: chạy lại ở đây vẫn dùng persistence context cũ, để caller xử lý
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return joinPoint.proceed();
+        }
+
+        String operation = joinPoint.getSignature().getDeclaringType().getSimpleName()
+                + "." + joinPoint.getSignature().getName();
+        int maxAttempts = Math.max(1, retry.maxAttempts());
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return joinPoint.proceed();
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= maxAttempts) {
+                    conflictCounter(operation, "exhausted").increment();
+                    log.warn("Xung đột khóa lạc quan ở {} sau {} lần thử", operation, attempt);
+                    throw e;
+                }
+                conflictCounter(operation, "retried").increment();
+                long delay = backoff(retry, attempt);
+                log.debug("Xung đột khóa lạc quan ở {}, thử lại lần {} sau {} ms", operation, attempt + 1, delay);
+                Thread.sleep(delay);
+            }
+        }
+    }
+
+    // Full jitter: ngẫu nhiên trong [0, min(max, base * 2^(attempt-1))] để các request xung đột không retry cùng lúc
+    private static long backoff(RetryOnOptimisticLock retry, int attempt) {
+        long exponential = retry.backoffMillis() << Math.min(attempt - 1, 20);
+        long cap = Math.min(retry.maxBackoffMillis(), exponential);
+        return cap <= 0 ? 0 : ThreadLocalRandom.current().nextLong(cap + 1);
+    }
+
+    private Counter conflictCounter(String operation, String outcome) {
+        return Counter.builder("optimistic.lock.conflicts")
+                .description("Số lần xung đột khóa lạc quan theo thao tác")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.api_sell_clothes.Config;
+
+import java.lang.annotation.*;
+
+/**
+ * Chạy lại phương thức khi transaction bị từ chối do khóa lạc quan (version đã thay đổi).
+ * <p>
+ * Chỉ dùng cho thao tác an toàn khi chạy lại: đọc lại trạng thái mới nhất, kiểm tra lại rồi mới ghi.
+ * Không dùng cho thao tác ghi đè bằng giá trị tuyệt đối từ client (PUT): chạy lại sẽ ghi đè thay đổi đồng thời.
+ * Phương thức phải là điểm bắt đầu transaction; nếu đang nằm trong transaction của caller thì không retry.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface RetryOnOptimisticLock {
+
+    // Tổng số lần chạy, kể cả lần đầu
+    int maxAttempts() default 3;
+
+    // Thời gian chờ cơ sở, nhân đôi sau mỗi lần thử và cộng thêm jitter ngẫu nhiên
+    long backoffMillis() default 20;
+
+    long maxBackoffMillis() default 200;
+}
@@ -1,10 +1,14 @@
 package com.example.api_sell_clothes.Config;
 
+import com.example.api_sell_clothes.Security.BoundedPasswordEncoder;
 import com.example.api_sell_clothes.Security.JwtAuthenticationFilter;
 import com.example.api_sell_clothes.Service.JwtService;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.MediaType;
@@ -16,8 +20,10 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
@@ -41,7 +47,19 @@ public class SecurityConfig {
 
     private final JwtService jwtService;
     private final UserDetailsService userDetailsService;
+    private final UserDetailsPasswordService userDetailsPasswordService;
     private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${security.password.bcrypt-strength:12}")
+    private int bcryptStrength;
+
+    // 0 = theo số CPU
+    @Value("${security.password.hashing-threads:0}")
+    private int hashingThreads;
+
+    @Value("${security.password.hashing-queue-capacity:100}")
+    private int hashingQueueCapacity;
 
     @Bean
     public JwtAuthenticationFilter jwtAuthenticationFilter() {
@@ -50,7 +68,17 @@ public class SecurityConfig {
 
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder(12);
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(bcryptStrength);
+        DelegatingPasswordEncoder delegatingEncoder = new DelegatingPasswordEncoder("bcrypt", Map.of("bcrypt", bcrypt));
+        // Hash cũ lưu không có tiền tố {bcrypt} vẫn được so khớp, và sẽ được băm lại khi đăng nhập
+        delegatingEncoder.setDefaultPasswordEncoderForMatches(bcrypt);
+
+        int threads = hashingThreads > 0 ? hashingThreads : Runtime.getRuntime().availableProcessors();
+        BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(delegatingEncoder, threads, hashingQueueCapacity);
+        Gauge.builder("security.password.hashing.queue", encoder, BoundedPasswordEncoder::getQueueDepth)
+                .description("Số tác vụ băm mật khẩu đang chờ")
+                .register(meterRegistry);
+        return encoder;
     }
 
     @Bean
@@ -58,6 +86,8 @@ public class SecurityConfig {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
         authProvider.setUserDetailsService(userDetailsService);
         authProvider.setPasswordEncoder(passwordEncoder());
+        // Băm lại mật khẩu khi đăng nhập nếu cost hoặc thuật toán đã thay đổi
+        authProvider.setUserDetailsPasswordService(userDetailsPasswordService);
         // Không ẩn lỗi "user not found"
         authProvider.setHideUserNotFoundExceptions(false);
         return authProvider;
@@ -114,6 +144,10 @@ public class SecurityConfig {
                         // User endpoints
                         .requestMatchers("/api/user/**").hasRole("USER")
 
+                        // Actuator (health công khai, metrics chỉ cho admin)
+                        .requestMatchers("/actuator/health").permitAll()
+                        .requestMatchers("/actuator/**").hasAnyRole("ADMIN", "SUPER_ADMIN")
+
                         // Any other request needs authentication
                         .anyRequest().authenticated()
                 )
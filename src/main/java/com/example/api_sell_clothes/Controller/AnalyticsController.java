@@ -0,0 +1,55 @@
+package com.example.api_sell_clothes.Controller;
+
+import com.example.api_sell_clothes.DTO.Analytics.CategorySalesBucket;
+import com.example.api_sell_clothes.DTO.Analytics.ProductSales;
+import com.example.api_sell_clothes.DTO.Analytics.SalesBucket;
+import com.example.api_sell_clothes.Service.SalesAnalyticsService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/v1/admin/analytics")
+@RequiredArgsConstructor
+public class AnalyticsController {
+
+    private final SalesAnalyticsService salesAnalyticsService;
+
+    // Doanh thu, số đơn, giá trị trung bình mỗi đơn và số lượng bán theo giờ/ngày/tuần (chỉ tính đơn đã giao)
+    @GetMapping("/sales")
+    @PreAuthorize("hasAnyRole('ADMIN', 'SUPER_ADMIN')")
+    public ResponseEntity<List<SalesBucket>> getSales(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "DAY") SalesAnalyticsService.Granularity granularity) {
+        return ResponseEntity.ok(salesAnalyticsService.getSales(from, to, granularity));
+    }
+
+    @GetMapping("/products")
+    @PreAuthorize("hasAnyRole('ADMIN', 'SUPER_ADMIN')")
+    public ResponseEntity<List<ProductSales>> getTopProducts(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(salesAnalyticsService.getTopProducts(from, to, categoryId, limit));
+    }
+
+    @GetMapping("/categories")
+    @PreAuthorize("hasAnyRole('ADMIN', 'SUPER_ADMIN')")
+    public ResponseEntity<List<CategorySalesBucket>> getCategorySales(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "DAY") SalesAnalyticsService.Granularity granularity,
+            @RequestParam(required = false) Long categoryId) {
+        return ResponseEntity.ok(salesAnalyticsService.getCategorySales(from, to, granularity, categoryId));
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.api_sell_clothes.Controller;
 
 import com.example.api_sell_clothes.DTO.CategoriesDTO;
+import com.example.api_sell_clothes.DTO.Category.CategoryDeleteResponse;
 import com.example.api_sell_clothes.Service.CategoryService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -50,9 +51,8 @@ public class CategoryController {
 
     @DeleteMapping("/parent/{id}")
     @PreAuthorize("hasAnyRole('ADMIN', 'SUPER_ADMIN')")
-    public ResponseEntity<Void> deleteParentCategory(@PathVariable Long id) {
-        categoryService.deleteParentCategory(id);
-        return ResponseEntity.noContent().build();
+    public ResponseEntity<CategoryDeleteResponse> deleteParentCategory(@PathVariable Long id) {
+        return ResponseEntity.ok(categoryService.deleteParentCategory(id));
     }
 
     // APIs cho Category con
@@ -93,9 +93,8 @@ public class CategoryController {
 
     @DeleteMapping("/child/{id}")
     @PreAuthorize("hasAnyRole('ADMIN', 'SUPER_ADMIN')")
-    public ResponseEntity<Void> deleteChildCategory(@PathVariable Long id) {
-        categoryService.deleteChildCategory(id);
-        return ResponseEntity.noContent().build();
+    public ResponseEntity<CategoryDeleteResponse> deleteChildCategory(@PathVariable Long id) {
+        return ResponseEntity.ok(categoryService.deleteChildCategory(id));
     }
 
     // APIs chung cho cả Category
@@ -109,6 +108,11 @@ public class CategoryController {
         return ResponseEntity.ok(categoryService.getCategoryById(id));
     }
 
+    @GetMapping("/{id}/path")
+    public ResponseEntity<List<CategoriesDTO>> getCategoryPath(@PathVariable Long id) {
+        return ResponseEntity.ok(categoryService.getCategoryPath(id));
+    }
+
     @GetMapping("/search")
     public ResponseEntity<List<CategoriesDTO>> searchCategories(@RequestParam String keyword) {
         try {
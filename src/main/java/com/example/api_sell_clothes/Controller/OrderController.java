@@ -1,17 +1,32 @@
 package com.example.api_sell_clothes.Controller;
 
+import com.example.api_sell_clothes.DTO.Checkout.CheckoutRequest;
+import com.example.api_sell_clothes.DTO.Checkout.CheckoutResponse;
+import com.example.api_sell_clothes.DTO.CursorPageDTO;
+import com.example.api_sell_clothes.DTO.Order.BulkStatusUpdateRequest;
+import com.example.api_sell_clothes.DTO.Order.BulkStatusUpdateResponse;
+import com.example.api_sell_clothes.DTO.Order.DailyOrderStatistics;
 import com.example.api_sell_clothes.DTO.OrdersDTO;
+import com.example.api_sell_clothes.Security.UserPrincipal;
+import com.example.api_sell_clothes.Service.CheckoutService;
 import com.example.api_sell_clothes.Service.OrderService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
@@ -22,6 +37,7 @@ import java.util.Map;
 public class OrderController {
 
     private final OrderService orderService;
+    private final CheckoutService checkoutService;
 
     @PostMapping
     public ResponseEntity<OrdersDTO> createOrder(@Valid @RequestBody OrdersDTO orderDTO) {
@@ -29,6 +45,15 @@ public class OrderController {
         return new ResponseEntity<>(createdOrder, HttpStatus.CREATED);
     }
 
+    // Đặt hàng từ giỏ hàng cho người dùng đang đăng nhập; tổng tiền tính ở server
+    @PostMapping("/checkout")
+    public ResponseEntity<CheckoutResponse> checkout(
+            @AuthenticationPrincipal UserPrincipal principal,
+            @Valid @RequestBody CheckoutRequest request) {
+        CheckoutResponse response = checkoutService.checkout(principal.getUserId(), request);
+        return new ResponseEntity<>(response, HttpStatus.CREATED);
+    }
+
     @PutMapping("/{id}")
     @PreAuthorize("hasAnyRole('ADMIN', 'SUPER_ADMIN')")
     public ResponseEntity<OrdersDTO> updateOrder(
@@ -66,11 +91,20 @@ public class OrderController {
     @PreAuthorize("hasAnyRole('ADMIN', 'SUPER_ADMIN')")
     public ResponseEntity<OrdersDTO> updateOrderStatus(
             @PathVariable Long id,
-            @RequestParam String status) {
-        OrdersDTO updatedOrder = orderService.updateOrderStatus(id, status);
+            @RequestParam String status,
+            @RequestParam(required = false) Long version) {
+        OrdersDTO updatedOrder = orderService.updateOrderStatus(id, status, version);
         return ResponseEntity.ok(updatedOrder);
     }
 
+    // Chuyển trạng thái hàng loạt bằng một câu UPDATE, trả về kết quả theo từng đơn
+    @PatchMapping("/status")
+    @PreAuthorize("hasAnyRole('ADMIN', 'SUPER_ADMIN')")
+    public ResponseEntity<BulkStatusUpdateResponse> bulkUpdateOrderStatus(
+            @Valid @RequestBody BulkStatusUpdateRequest request) {
+        return ResponseEntity.ok(orderService.bulkUpdateOrderStatus(request));
+    }
+
     @GetMapping("/search")
     @PreAuthorize("hasAnyRole('ADMIN', 'SUPER_ADMIN')")
     public ResponseEntity<Page<OrdersDTO>> searchOrders(
@@ -83,6 +117,18 @@ public class OrderController {
         return ResponseEntity.ok(orders);
     }
 
+    // Như /search nhưng không có totalElements/totalPages (không chạy COUNT); dùng "last" để biết còn trang sau
+    @GetMapping("/search/slice")
+    @PreAuthorize("hasAnyRole('ADMIN', 'SUPER_ADMIN')")
+    public ResponseEntity<Slice<OrdersDTO>> searchOrdersSlice(
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) LocalDateTime startDate,
+            @RequestParam(required = false) LocalDateTime endDate,
+            Pageable pageable) {
+        return ResponseEntity.ok(orderService.searchOrdersSlice(userId, status, startDate, endDate, pageable));
+    }
+
     @GetMapping("/date-range")
     @PreAuthorize("hasAnyRole('ADMIN', 'SUPER_ADMIN')")
     public ResponseEntity<List<OrdersDTO>> getOrdersByDateRange(
@@ -101,6 +147,46 @@ public class OrderController {
         return ResponseEntity.ok(orders);
     }
 
+    @GetMapping("/date-range/page")
+    @PreAuthorize("hasAnyRole('ADMIN', 'SUPER_ADMIN')")
+    public ResponseEntity<CursorPageDTO<OrdersDTO>> getOrdersByDateRangePage(
+            @RequestParam LocalDateTime startDate,
+            @RequestParam LocalDateTime endDate,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        return ResponseEntity.ok(orderService.getOrdersByDateRangePage(startDate, endDate, cursor, size));
+    }
+
+    @GetMapping("/amount-range/page")
+    @PreAuthorize("hasAnyRole('ADMIN', 'SUPER_ADMIN')")
+    public ResponseEntity<CursorPageDTO<OrdersDTO>> getOrdersByAmountRangePage(
+            @RequestParam BigDecimal minAmount,
+            @RequestParam BigDecimal maxAmount,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        return ResponseEntity.ok(orderService.getOrdersByAmountRangePage(minAmount, maxAmount, cursor, size));
+    }
+
+    @GetMapping("/date-range/export")
+    @PreAuthorize("hasAnyRole('ADMIN', 'SUPER_ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportOrdersByDateRange(
+            @RequestParam LocalDateTime startDate,
+            @RequestParam LocalDateTime endDate,
+            @RequestParam(defaultValue = "NDJSON") OrderService.ExportFormat format) {
+        StreamingResponseBody body = out -> orderService.exportOrdersByDateRange(startDate, endDate, format, out);
+        return exportResponse(body, format);
+    }
+
+    @GetMapping("/amount-range/export")
+    @PreAuthorize("hasAnyRole('ADMIN', 'SUPER_ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportOrdersByAmountRange(
+            @RequestParam BigDecimal minAmount,
+            @RequestParam BigDecimal maxAmount,
+            @RequestParam(defaultValue = "NDJSON") OrderService.ExportFormat format) {
+        StreamingResponseBody body = out -> orderService.exportOrdersByAmountRange(minAmount, maxAmount, format, out);
+        return exportResponse(body, format);
+    }
+
     @GetMapping("/statistics")
     @PreAuthorize("hasAnyRole('ADMIN', 'SUPER_ADMIN')")
     public ResponseEntity<Map<String, Long>> getOrderStatistics() {
@@ -108,6 +194,14 @@ public class OrderController {
         return ResponseEntity.ok(statistics);
     }
 
+    @GetMapping("/statistics/daily")
+    @PreAuthorize("hasAnyRole('ADMIN', 'SUPER_ADMIN')")
+    public ResponseEntity<List<DailyOrderStatistics>> getDailyStatistics(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntity.ok(orderService.getDailyStatistics(from, to));
+    }
+
     @GetMapping("/total-amount")
     @PreAuthorize("hasAnyRole('ADMIN', 'SUPER_ADMIN')")
     public ResponseEntity<BigDecimal> getTotalAmountByStatus(@RequestParam String status) {
@@ -125,4 +219,14 @@ public class OrderController {
         List<OrdersDTO> topOrders = orderService.getTopOrdersByAmount(startDate, endDate, status, limit);
         return ResponseEntity.ok(topOrders);
     }
+
+    private ResponseEntity<StreamingResponseBody> exportResponse(StreamingResponseBody body,
+                                                                 OrderService.ExportFormat format) {
+        MediaType contentType = format == OrderService.ExportFormat.CSV
+                ? new MediaType("text", "csv", StandardCharsets.UTF_8)
+                : MediaType.APPLICATION_NDJSON;
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .body(body);
+    }
 }
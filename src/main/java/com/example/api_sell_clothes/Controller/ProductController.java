@@ -1,15 +1,26 @@
 package com.example.api_sell_clothes.Controller;
 
+import com.example.api_sell_clothes.DTO.CursorPageDTO;
+import com.example.api_sell_clothes.DTO.Product.ProductFilterRequest;
+import com.example.api_sell_clothes.DTO.Product.ProductFilterResponse;
+import com.example.api_sell_clothes.DTO.Product.ProductImportReport;
 import com.example.api_sell_clothes.DTO.ProductsDTO;
+import com.example.api_sell_clothes.Service.ProductImportService;
 import com.example.api_sell_clothes.Service.ProductService;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -18,6 +29,7 @@ import java.util.List;
 public class ProductController {
 
     private final ProductService productService;
+    private final ProductImportService productImportService;
 
     @PostMapping
     @PreAuthorize("hasAnyRole('ADMIN', 'SUPER_ADMIN')")
@@ -29,6 +41,17 @@ public class ProductController {
         }
     }
 
+    // Nhập hàng loạt từ CSV (text/csv, dòng đầu là header) hoặc NDJSON; trả về báo cáo theo từng dòng
+    @PostMapping(value = "/import", consumes = {"text/csv", MediaType.APPLICATION_NDJSON_VALUE})
+    @PreAuthorize("hasAnyRole('ADMIN', 'SUPER_ADMIN')")
+    public ResponseEntity<ProductImportReport> importProducts(HttpServletRequest request) throws IOException {
+        ProductImportService.ImportFormat format =
+                MediaType.APPLICATION_NDJSON.isCompatibleWith(MediaType.parseMediaType(request.getContentType()))
+                        ? ProductImportService.ImportFormat.NDJSON
+                        : ProductImportService.ImportFormat.CSV;
+        return ResponseEntity.ok(productImportService.importProducts(request.getInputStream(), format));
+    }
+
     @PutMapping("/{id}")
     @PreAuthorize("hasAnyRole('ADMIN', 'SUPER_ADMIN')")
     public ResponseEntity<ProductsDTO> updateProduct(
@@ -49,8 +72,20 @@ public class ProductController {
     }
 
     @GetMapping
-    public ResponseEntity<List<ProductsDTO>> getAllProducts() {
-        return ResponseEntity.ok(productService.getAllProducts());
+    public ResponseEntity<CursorPageDTO<ProductsDTO>> getAllProducts(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        return ResponseEntity.ok(productService.getAllProducts(cursor, size));
+    }
+
+    // Xuất toàn bộ danh mục dạng NDJSON cho đối tác; since (ISO date-time) để đồng bộ phần thay đổi
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportProducts(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime since) {
+        StreamingResponseBody body = out -> productService.exportProducts(since, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
     }
 
     @GetMapping("/{id}")
@@ -59,38 +94,55 @@ public class ProductController {
     }
 
     @GetMapping("/category/{categoryId}")
-    public ResponseEntity<List<ProductsDTO>> getProductsByCategory(@PathVariable Long categoryId) {
+    public ResponseEntity<List<ProductsDTO>> getProductsByCategory(
+            @PathVariable Long categoryId,
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer size) {
         try {
-            return ResponseEntity.ok(productService.getProductsByCategory(categoryId));
+            return ResponseEntity.ok(productService.getProductsByCategory(categoryId, page, size));
         } catch (IllegalArgumentException e) {
             throw new IllegalArgumentException("Lỗi khi lấy sản phẩm theo danh mục: " + e.getMessage());
         }
     }
 
     @GetMapping("/search")
-    public ResponseEntity<List<ProductsDTO>> searchProducts(@RequestParam String keyword) {
+    public ResponseEntity<List<ProductsDTO>> searchProducts(
+            @RequestParam String keyword,
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer size) {
         try {
-            return ResponseEntity.ok(productService.searchProducts(keyword));
+            return ResponseEntity.ok(productService.searchProducts(keyword, page, size));
         } catch (IllegalArgumentException e) {
             throw new IllegalArgumentException("Lỗi tìm kiếm: " + e.getMessage());
         }
     }
 
+    // Bộ lọc kết hợp: minPrice, maxPrice, minStock, categoryId (kèm danh mục con), sort, page, size
+    @GetMapping("/filter")
+    public ResponseEntity<ProductFilterResponse> filterProducts(@ModelAttribute ProductFilterRequest filter) {
+        return ResponseEntity.ok(productService.filterProducts(filter));
+    }
+
     @GetMapping("/filter/price")
     public ResponseEntity<List<ProductsDTO>> getProductsByPriceRange(
             @RequestParam BigDecimal minPrice,
-            @RequestParam BigDecimal maxPrice) {
+            @RequestParam BigDecimal maxPrice,
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer size) {
         try {
-            return ResponseEntity.ok(productService.getProductsByPriceRange(minPrice, maxPrice));
+            return ResponseEntity.ok(productService.getProductsByPriceRange(minPrice, maxPrice, page, size));
         } catch (IllegalArgumentException e) {
             throw new IllegalArgumentException("Lỗi khi lọc theo giá: " + e.getMessage());
         }
     }
 
     @GetMapping("/filter/stock")
-    public ResponseEntity<List<ProductsDTO>> getProductsByMinStock(@RequestParam Long minStock) {
+    public ResponseEntity<List<ProductsDTO>> getProductsByMinStock(
+            @RequestParam Long minStock,
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer size) {
         try {
-            return ResponseEntity.ok(productService.getProductsByStock(minStock));
+            return ResponseEntity.ok(productService.getProductsByStock(minStock, page, size));
         } catch (IllegalArgumentException e) {
             throw new IllegalArgumentException("Lỗi khi lọc theo tồn kho: " + e.getMessage());
         }
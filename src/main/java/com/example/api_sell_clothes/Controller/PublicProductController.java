@@ -0,0 +1,29 @@
+package com.example.api_sell_clothes.Controller;
+
+import com.example.api_sell_clothes.DTO.Product.TrendingProduct;
+import com.example.api_sell_clothes.Service.ProductService;
+import com.example.api_sell_clothes.Service.TrendingProducts;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/public/products")
+@RequiredArgsConstructor
+public class PublicProductController {
+
+    private final ProductService productService;
+
+    // Sản phẩm bán chạy trong giờ/ngày/tuần gần nhất, dùng cho trang chủ
+    @GetMapping("/trending")
+    public ResponseEntity<List<TrendingProduct>> getTrendingProducts(
+            @RequestParam(defaultValue = "DAY") TrendingProducts.Window window,
+            @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(productService.getTrendingProducts(window, limit));
+    }
+}
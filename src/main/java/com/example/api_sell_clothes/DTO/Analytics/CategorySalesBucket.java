@@ -0,0 +1,21 @@
+package com.example.api_sell_clothes.DTO.Analytics;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CategorySalesBucket {
+    private LocalDateTime bucketStart;
+    private Long categoryId;
+    private String categoryName;
+    private long units;
+    private BigDecimal revenue;
+}
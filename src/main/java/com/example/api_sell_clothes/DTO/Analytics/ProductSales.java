@@ -0,0 +1,21 @@
+package com.example.api_sell_clothes.DTO.Analytics;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductSales {
+    private Long productId;
+    private String productName;
+    private Long categoryId;
+    private long orderCount;
+    private long units;
+    private BigDecimal revenue;
+}
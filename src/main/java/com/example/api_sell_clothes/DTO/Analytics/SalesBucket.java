@@ -0,0 +1,23 @@
+package com.example.api_sell_clothes.DTO.Analytics;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SalesBucket {
+    // Thời điểm bắt đầu khoảng (giờ/ngày/tuần)
+    private LocalDateTime bucketStart;
+    private long orderCount;
+    private BigDecimal revenue;
+    private long units;
+    // Giá trị trung bình mỗi đơn = revenue / orderCount
+    private BigDecimal averageBasket;
+}
@@ -0,0 +1,18 @@
+package com.example.api_sell_clothes.DTO.Category;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class CategoryDeleteResponse {
+    private Long categoryId;
+    // Tổng số danh mục đã xóa, gồm cả danh mục được yêu cầu
+    private int deletedCategories;
+    // Số danh mục con cháu bị xóa theo
+    private int deletedDescendants;
+}
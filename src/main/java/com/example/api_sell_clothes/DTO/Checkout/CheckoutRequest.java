@@ -0,0 +1,35 @@
+package com.example.api_sell_clothes.DTO.Checkout;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CheckoutRequest {
+    @NotEmpty(message = "Giỏ hàng không được để trống")
+    @Size(max = 100, message = "Giỏ hàng tối đa 100 sản phẩm")
+    private List<@Valid CartItem> items;
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class CartItem {
+        @NotNull(message = "ID sản phẩm không được để trống")
+        private Long productId;
+
+        @NotNull(message = "Số lượng không được để trống")
+        @Min(value = 1, message = "Số lượng phải lớn hơn 0")
+        private Long quantity;
+    }
+}
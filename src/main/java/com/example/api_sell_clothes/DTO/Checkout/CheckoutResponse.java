@@ -0,0 +1,36 @@
+package com.example.api_sell_clothes.DTO.Checkout;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CheckoutResponse {
+    private Long orderId;
+    private Long userId;
+    private String status;
+    private LocalDateTime orderDate;
+    // Tính ở server từ giá hiện tại của sản phẩm, không nhận từ client
+    private BigDecimal totalAmount;
+    private List<Line> items;
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Line {
+        private Long orderItemId;
+        private Long productId;
+        private String productName;
+        private Long quantity;
+        private BigDecimal price;
+        private BigDecimal lineTotal;
+    }
+}
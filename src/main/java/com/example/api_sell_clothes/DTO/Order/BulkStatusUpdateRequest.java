@@ -0,0 +1,24 @@
+package com.example.api_sell_clothes.DTO.Order;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkStatusUpdateRequest {
+    @NotEmpty(message = "Danh sách đơn hàng không được để trống")
+    @Size(max = 10000, message = "Tối đa 10000 đơn hàng mỗi lần")
+    private List<Long> orderIds;
+
+    @NotBlank(message = "Trạng thái đơn hàng không được để trống")
+    private String status;
+}
@@ -0,0 +1,35 @@
+package com.example.api_sell_clothes.DTO.Order;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkStatusUpdateResponse {
+    private String status;
+    private int requested;
+    private int updated;
+    private int failed;
+    // Kết quả theo từng id, cùng thứ tự với yêu cầu (đã bỏ id trùng)
+    private List<Result> results;
+
+    public enum Outcome {
+        UPDATED, NOT_FOUND, INVALID_TRANSITION
+    }
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Result {
+        private Long orderId;
+        private Outcome outcome;
+        // Trạng thái trước khi cập nhật khi bị từ chối, null nếu cập nhật thành công hoặc không tìm thấy
+        private String currentStatus;
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.api_sell_clothes.DTO.Order;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailyOrderStatistics {
+    private LocalDate date;
+    private String status;
+    private long count;
+    private BigDecimal totalAmount;
+}
@@ -22,4 +22,6 @@ public class OrdersDTO {
     private BigDecimal totalAmount;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
+    // Gửi kèm khi cập nhật để phát hiện ghi đè đồng thời
+    private Long version;
 }
\ No newline at end of file
@@ -0,0 +1,26 @@
+package com.example.api_sell_clothes.DTO.Product;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProductFilterRequest {
+    private BigDecimal minPrice;
+    private BigDecimal maxPrice;
+    private Long minStock;
+    // Lọc theo danh mục, mặc định gồm cả các danh mục con
+    private Long categoryId;
+    @Builder.Default
+    private Boolean includeSubcategories = true;
+    // Dạng "field,asc|desc", ví dụ "price,desc"
+    private String sort;
+    private Integer page;
+    private Integer size;
+}
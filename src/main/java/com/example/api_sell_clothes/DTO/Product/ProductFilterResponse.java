@@ -0,0 +1,42 @@
+package com.example.api_sell_clothes.DTO.Product;
+
+import com.example.api_sell_clothes.DTO.ProductsDTO;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProductFilterResponse {
+    private List<ProductsDTO> items;
+    private long total;
+    private int page;
+    private int size;
+    private List<CategoryFacet> categoryFacets;
+    private List<PriceFacet> priceFacets;
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class CategoryFacet {
+        private Long categoryId;
+        private String categoryName;
+        private long count;
+    }
+
+    // Khoảng giá [from, to); from/to null nghĩa là không giới hạn
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class PriceFacet {
+        private BigDecimal from;
+        private BigDecimal to;
+        private long count;
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.api_sell_clothes.DTO.Product;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProductImportReport {
+    private long totalRows;
+    private long imported;
+    private long failed;
+    @Builder.Default
+    private List<RowError> errors = new ArrayList<>();
+    // true khi số lỗi vượt giới hạn và danh sách errors bị cắt bớt
+    private boolean errorsTruncated;
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class RowError {
+        // Số dòng trong file nguồn (tính từ 1)
+        private long line;
+        private String productName;
+        private String message;
+    }
+}
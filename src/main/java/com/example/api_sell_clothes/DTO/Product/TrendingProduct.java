@@ -0,0 +1,21 @@
+package com.example.api_sell_clothes.DTO.Product;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class TrendingProduct {
+    private Long productId;
+    private String productName;
+    private BigDecimal price;
+    private String imageUrl;
+    // Số lượng bán ước lượng trong cửa sổ thời gian (có thể lớn hơn một chút so với thực tế)
+    private long estimatedUnits;
+}
@@ -22,4 +22,6 @@ public class ProductsDTO {
     private String imageUrl;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
+    // Gửi kèm khi cập nhật để phát hiện ghi đè đồng thời
+    private Long version;
 }
@@ -16,7 +16,8 @@ import java.time.LocalDateTime;
 @Table(name = "categories")
 public class Categories {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "categories_seq")
+    @SequenceGenerator(name = "categories_seq", sequenceName = "categories_seq", allocationSize = IdAllocation.ALLOCATION_SIZE)
     @Column(name = "category_id")
     private Long categoryId;
 
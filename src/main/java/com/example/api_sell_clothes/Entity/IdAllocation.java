@@ -0,0 +1,16 @@
+package com.example.api_sell_clothes.Entity;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+/**
+ * Cấu hình sinh id theo sequence dùng chung cho mọi entity.
+ * <p>
+ * Mỗi lần gọi nextval, Hibernate giữ một khối ALLOCATION_SIZE id (optimizer pooled-lo: khối [v, v + size - 1])
+ * nên có thể gom INSERT thành JDBC batch, điều mà IDENTITY không cho phép.
+ * Sequence trong DB phải có INCREMENT BY bằng giá trị này (DatabaseMigrationRunner tự căn chỉnh khi khởi động).
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class IdAllocation {
+    public static final int ALLOCATION_SIZE = 50;
+}
@@ -0,0 +1,99 @@
+package com.example.api_sell_clothes.Entity;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Trạng thái đơn hàng, lưu trong DB dưới dạng smallint (code) qua {@link OrderStatusConverter}.
+ * <p>
+ * Bảng chuyển trạng thái được dựng một lần: pending → processing → shipped → delivered,
+ * mọi trạng thái chưa kết thúc đều có thể chuyển sang cancelled.
+ */
+public enum OrderStatus {
+    PENDING((short) 0, "pending"),
+    PROCESSING((short) 1, "processing"),
+    SHIPPED((short) 2, "shipped"),
+    DELIVERED((short) 3, "delivered"),
+    CANCELLED((short) 4, "cancelled");
+
+    private static final OrderStatus[] BY_CODE;
+
+    static {
+        PENDING.transitions = EnumSet.of(PROCESSING, CANCELLED);
+        PROCESSING.transitions = EnumSet.of(SHIPPED, CANCELLED);
+        SHIPPED.transitions = EnumSet.of(DELIVERED, CANCELLED);
+        DELIVERED.transitions = EnumSet.noneOf(OrderStatus.class);
+        CANCELLED.transitions = EnumSet.noneOf(OrderStatus.class);
+
+        for (OrderStatus status : values()) {
+            status.predecessors = EnumSet.noneOf(OrderStatus.class);
+        }
+        for (OrderStatus status : values()) {
+            status.transitions.forEach(next -> next.predecessors.add(status));
+        }
+
+        BY_CODE = new OrderStatus[values().length];
+        for (OrderStatus status : values()) {
+            BY_CODE[status.code] = status;
+        }
+    }
+
+    private final short code;
+    private final String value;
+    private EnumSet<OrderStatus> transitions;
+    private EnumSet<OrderStatus> predecessors;
+
+    OrderStatus(short code, String value) {
+        this.code = code;
+        this.value = value;
+    }
+
+    public short getCode() {
+        return code;
+    }
+
+    // Giá trị dạng chuỗi dùng trong API
+    public String getValue() {
+        return value;
+    }
+
+    public boolean canTransitionTo(OrderStatus next) {
+        return transitions.contains(next);
+    }
+
+    public boolean isTerminal() {
+        return transitions.isEmpty();
+    }
+
+    public Set<OrderStatus> getAllowedTransitions() {
+        return EnumSet.copyOf(transitions);
+    }
+
+    // Các trạng thái được phép chuyển sang trạng thái này
+    public Set<OrderStatus> getPredecessors() {
+        return predecessors.isEmpty() ? EnumSet.noneOf(OrderStatus.class) : EnumSet.copyOf(predecessors);
+    }
+
+    public static OrderStatus fromCode(short code) {
+        if (code < 0 || code >= BY_CODE.length) {
+            throw new IllegalArgumentException("Mã trạng thái đơn hàng không hợp lệ: " + code);
+        }
+        return BY_CODE[code];
+    }
+
+    /**
+     * Tìm theo giá trị chuỗi, không phân biệt hoa thường; trả về null nếu không hợp lệ
+     */
+    public static OrderStatus fromValue(String value) {
+        if (value == null) {
+            return null;
+        }
+        String trimmed = value.trim();
+        for (OrderStatus status : values()) {
+            if (status.value.equalsIgnoreCase(trimmed)) {
+                return status;
+            }
+        }
+        return null;
+    }
+}
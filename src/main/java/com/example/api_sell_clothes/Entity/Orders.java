@@ -11,14 +11,20 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        // Lọc/thống kê theo trạng thái trong khoảng thời gian
+        @Index(name = "idx_orders_status_order_date", columnList = "status, order_date"),
+        // Đơn hàng của một người dùng theo thời gian (tìm kiếm, lịch sử đơn)
+        @Index(name = "idx_orders_user_order_date", columnList = "user_id, order_date")
+})
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
 public class Orders {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "orders_seq")
+    @SequenceGenerator(name = "orders_seq", sequenceName = "orders_seq", allocationSize = IdAllocation.ALLOCATION_SIZE)
     @Column(name = "order_id")
     private Long orderId;
 
@@ -29,12 +35,18 @@ public class Orders {
     @Column(name = "order_date")
     private LocalDateTime orderDate;
 
-    @Column(name = "status", nullable = false)
-    private String status = "pending";
+    @Column(name = "status", nullable = false, columnDefinition = "smallint")
+    @Builder.Default
+    private OrderStatus status = OrderStatus.PENDING;
 
     @Column(name = "total_amount", nullable = false, precision = 10, scale = 2)
     private BigDecimal totalAmount;
 
+    // Khóa lạc quan: mỗi lần UPDATE tăng version, ghi đè dữ liệu cũ sẽ bị từ chối
+    @Version
+    @Column(name = "version", nullable = false, columnDefinition = "bigint default 0")
+    private Long version;
+
     @Column(name = "created_at")
     private LocalDateTime createdAt;
 
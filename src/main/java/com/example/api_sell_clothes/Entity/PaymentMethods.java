@@ -19,7 +19,8 @@ import java.time.LocalDateTime;
 @Table(name = "payment_methods")
 public class PaymentMethods {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "payment_methods_seq")
+    @SequenceGenerator(name = "payment_methods_seq", sequenceName = "payment_methods_seq", allocationSize = IdAllocation.ALLOCATION_SIZE)
     @Column(name = "payment_method_id")
     private Long paymentMethodId;
 
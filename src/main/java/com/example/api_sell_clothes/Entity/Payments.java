@@ -17,6 +17,8 @@ import java.time.LocalDateTime;
 @Table(name = "payments")
 public class Payments {
     @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "payments_seq")
+    @SequenceGenerator(name = "payments_seq", sequenceName = "payments_seq", allocationSize = IdAllocation.ALLOCATION_SIZE)
     @Column(name = "payment_id")
     private Long paymentId;
 
@@ -14,7 +14,8 @@ import lombok.NoArgsConstructor;
 @Table(name = "permissions")
 public class Permissions {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "permissions_seq")
+    @SequenceGenerator(name = "permissions_seq", sequenceName = "permissions_seq", allocationSize = IdAllocation.ALLOCATION_SIZE)
     @Column(name = "permission_id")
     private Long permissionId;
 
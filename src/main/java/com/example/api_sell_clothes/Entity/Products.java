@@ -15,10 +15,15 @@ import java.time.LocalDateTime;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "products")
+@Table(name = "products", indexes = {
+        // Lọc theo danh mục + khoảng giá (bộ lọc facet)
+        @Index(name = "idx_products_category_price", columnList = "category_id, price"),
+        @Index(name = "idx_products_stock", columnList = "stock")
+})
 public class Products {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "products_seq")
+    @SequenceGenerator(name = "products_seq", sequenceName = "products_seq", allocationSize = IdAllocation.ALLOCATION_SIZE)
     @Column(name = "product_id")
     private Long productId;
 
@@ -34,6 +39,11 @@ public class Products {
     @Column(name = "stock")
     private Long stock;
 
+    // Khóa lạc quan: mỗi lần UPDATE tăng version, ghi đè dữ liệu cũ sẽ bị từ chối
+    @Version
+    @Column(name = "version", nullable = false, columnDefinition = "bigint default 0")
+    private Long version;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "category_id", nullable = false)
     private Categories category;
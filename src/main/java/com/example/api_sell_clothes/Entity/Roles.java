@@ -17,7 +17,8 @@ import java.util.Set;
 @Table(name = "roles")
 public class Roles {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "roles_seq")
+    @SequenceGenerator(name = "roles_seq", sequenceName = "roles_seq", allocationSize = IdAllocation.ALLOCATION_SIZE)
     @Column(name = "role_id")
     private Long roleId;
 
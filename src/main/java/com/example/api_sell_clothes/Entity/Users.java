@@ -18,7 +18,8 @@ import java.util.Set;
 @Table(name = "users")
 public class Users {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+    @SequenceGenerator(name = "users_seq", sequenceName = "users_seq", allocationSize = IdAllocation.ALLOCATION_SIZE)
     @Column(name = "user_id")
     private Long userId;
 
@@ -46,6 +47,15 @@ public class Users {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    // Chỉ LastLoginRecorder ghi (UPDATE theo lô); save() của entity không được ghi đè giá trị đọc được lúc tải
+    @Column(name = "last_login_at", insertable = false, updatable = false)
+    private LocalDateTime lastLoginAt;
+
+    // Tăng mỗi khi vai trò/trạng thái thay đổi để vô hiệu hóa các token đã cấp
+    @Column(name = "token_version")
+    @Builder.Default
+    private Long tokenVersion = 0L;
+
     @ManyToMany(fetch = FetchType.EAGER)
     @JoinTable(name = "users_roles",
             joinColumns = @JoinColumn(name = "user_id"),
@@ -58,4 +68,8 @@ public class Users {
     public Users(Long userId) {
         this.userId = userId;
     }
+
+    public void bumpTokenVersion() {
+        this.tokenVersion = (tokenVersion != null ? tokenVersion : 0L) + 1;
+    }
 }
@@ -0,0 +1,13 @@
+package com.example.api_sell_clothes.Event;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Phát ra khi danh mục được tạo, cập nhật hoặc xóa để dựng lại cây danh mục trong bộ nhớ
+ */
+@Getter
+@RequiredArgsConstructor
+public class CategoryChangedEvent {
+    private final Long categoryId;
+}
@@ -0,0 +1,39 @@
+package com.example.api_sell_clothes.Event;
+
+import com.example.api_sell_clothes.Entity.OrderStatus;
+import com.example.api_sell_clothes.Entity.Orders;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Phát ra khi đơn hàng được tạo, cập nhật hoặc xóa; mang trạng thái trước/sau để listener cập nhật số liệu
+ * theo delta mà không phải đọc lại DB. before = null khi tạo mới, after = null khi xóa.
+ */
+@Getter
+@RequiredArgsConstructor
+public class OrderChangedEvent {
+    private final Long orderId;
+    private final Snapshot before;
+    private final Snapshot after;
+
+    public record Snapshot(OrderStatus status, LocalDateTime orderDate, BigDecimal totalAmount) {
+        public static Snapshot of(Orders order) {
+            return new Snapshot(order.getStatus(), order.getOrderDate(), order.getTotalAmount());
+        }
+    }
+
+    public static OrderChangedEvent created(Orders order) {
+        return new OrderChangedEvent(order.getOrderId(), null, Snapshot.of(order));
+    }
+
+    public static OrderChangedEvent updated(Snapshot before, Orders order) {
+        return new OrderChangedEvent(order.getOrderId(), before, Snapshot.of(order));
+    }
+
+    public static OrderChangedEvent deleted(Long orderId, Snapshot before) {
+        return new OrderChangedEvent(orderId, before, null);
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.api_sell_clothes.Event;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Phát ra khi các dòng hàng của đơn được tạo; mang số lượng theo sản phẩm để cập nhật thống kê bán chạy
+ */
+@Getter
+@RequiredArgsConstructor
+public class OrderItemsCreatedEvent {
+    private final Map<Long, Long> quantitiesByProduct;
+    private final LocalDateTime orderedAt;
+}
@@ -0,0 +1,26 @@
+package com.example.api_sell_clothes.Event;
+
+import com.example.api_sell_clothes.Entity.Products;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Phát ra khi sản phẩm được tạo, cập nhật hoặc xóa; mang sẵn nội dung cần index để listener không phải đọc lại DB
+ */
+@Getter
+@RequiredArgsConstructor
+public class ProductChangedEvent {
+    private final Long productId;
+    private final String productName;
+    private final String productDescription;
+    private final boolean deleted;
+
+    public static ProductChangedEvent saved(Products product) {
+        return new ProductChangedEvent(product.getProductId(), product.getProductName(),
+                product.getProductDescription(), false);
+    }
+
+    public static ProductChangedEvent deleted(Long productId) {
+        return new ProductChangedEvent(productId, null, null, true);
+    }
+}
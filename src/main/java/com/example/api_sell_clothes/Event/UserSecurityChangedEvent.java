@@ -0,0 +1,16 @@
+package com.example.api_sell_clothes.Event;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Phát ra khi thông tin liên quan đến bảo mật của người dùng thay đổi
+ * (vai trò, trạng thái kích hoạt, mật khẩu, xóa tài khoản...).
+ * username là username trước khi thay đổi.
+ */
+@Getter
+@RequiredArgsConstructor
+public class UserSecurityChangedEvent {
+    private final Long userId;
+    private final String username;
+}
@@ -0,0 +1,11 @@
+package com.example.api_sell_clothes.Exception.Common;
+
+import org.springframework.http.HttpStatus;
+
+public class InsufficientStockException extends BaseException {
+    public InsufficientStockException(Long productId, Long requested) {
+        super(String.format("Sản phẩm %d không đủ tồn kho cho số lượng %d", productId, requested),
+                HttpStatus.CONFLICT,
+                "ERROR.INSUFFICIENT_STOCK");
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.api_sell_clothes.Exception.Common;
+
+import org.springframework.http.HttpStatus;
+
+public class ServiceUnavailableException extends BaseException {
+    public ServiceUnavailableException(String message) {
+        super(message, HttpStatus.SERVICE_UNAVAILABLE, "ERROR.SERVICE_UNAVAILABLE");
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.api_sell_clothes.Exception.Common;
+
+import org.springframework.http.HttpStatus;
+
+public class VersionConflictException extends BaseException {
+    public VersionConflictException(String resourceName, Object id, Long expectedVersion, Long currentVersion) {
+        super(String.format("%s %s đã bị thay đổi bởi người khác (version gửi lên %d, hiện tại %d), vui lòng tải lại",
+                        resourceName, id, expectedVersion, currentVersion),
+                HttpStatus.CONFLICT,
+                "ERROR.CONCURRENT_MODIFICATION");
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.api_sell_clothes.Mapper;
 
 import com.example.api_sell_clothes.DTO.OrdersDTO;
+import com.example.api_sell_clothes.Entity.OrderStatus;
 import com.example.api_sell_clothes.Entity.Orders;
 import org.springframework.stereotype.Component;
 
@@ -17,7 +18,7 @@ public class OrderMapper implements EntityMapper<Orders, OrdersDTO> {
         Orders orders = Orders.builder()
                 .orderId(dto.getOrder_item_id())
                 .orderDate(dto.getOrderDate())
-                .status(dto.getStatus())
+                .status(OrderStatus.fromValue(dto.getStatus()))
                 .totalAmount(dto.getTotalAmount())
                 .createdAt(dto.getCreatedAt())
                 .updatedAt(dto.getUpdatedAt())
@@ -35,10 +36,11 @@ public class OrderMapper implements EntityMapper<Orders, OrdersDTO> {
                 .userId(entity.getUser() != null ? entity.getUser().getUserId() : null)
                 .username(entity.getUser() != null ? entity.getUser().getUsername() : null)
                 .orderDate(entity.getOrderDate())
-                .status(entity.getStatus())
+                .status(entity.getStatus() != null ? entity.getStatus().getValue() : null)
                 .totalAmount(entity.getTotalAmount())
                 .createdAt(entity.getCreatedAt())
                 .updatedAt(entity.getUpdatedAt())
+                .version(entity.getVersion())
                 .build();
         return ordersDTO;
     }
@@ -46,6 +46,7 @@ public class ProductMapper implements EntityMapper<Products, ProductsDTO> {
                 .imageUrl(entity.getImageUrl())
                 .createdAt(entity.getCreatedAt())
                 .updatedAt(entity.getUpdatedAt())
+                .version(entity.getVersion())
                 .build();
     }
 
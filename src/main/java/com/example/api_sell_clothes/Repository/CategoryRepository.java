@@ -4,8 +4,12 @@ import com.example.api_sell_clothes.Entity.Categories;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -20,6 +24,40 @@ public interface CategoryRepository extends JpaRepository<Categories, Long> {
      */
     List<Categories> findByParentCategoryId(Long parentId);
 
+    /**
+     * Lấy id của danh mục và toàn bộ danh mục con cháu trong một truy vấn đệ quy.
+     * UNION (không phải UNION ALL) loại dòng đã gặp nên truy vấn vẫn dừng khi parent_category_id tạo vòng.
+     */
+    @Query(value = """
+            WITH RECURSIVE subtree AS (
+                SELECT category_id FROM categories WHERE category_id = :rootId
+                UNION
+                SELECT c.category_id FROM categories c JOIN subtree s ON c.parent_category_id = s.category_id
+            )
+            SELECT category_id FROM subtree
+            """, nativeQuery = true)
+    List<Long> findSubtreeIds(@Param("rootId") Long rootId);
+
+    /**
+     * Dấu vân tay (md5) của toàn bộ bảng danh mục, đổi khi có bất kỳ dòng nào được thêm/sửa/xóa
+     */
+    @Query(value = "SELECT COALESCE(md5(string_agg(c::text, ',' ORDER BY c.category_id)), '') FROM categories c",
+            nativeQuery = true)
+    String computeFingerprint();
+
+    /**
+     * Trong các id cho trước, trả về những id đang tồn tại
+     */
+    @Query("SELECT c.categoryId FROM Categories c WHERE c.categoryId IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Xóa hàng loạt bằng một câu DELETE ... WHERE category_id IN (...)
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("DELETE FROM Categories c WHERE c.categoryId IN :ids")
+    int deleteByIds(@Param("ids") List<Long> ids);
+
     /**
      * Tìm tất cả danh mục gốc (không có danh mục cha)
      */
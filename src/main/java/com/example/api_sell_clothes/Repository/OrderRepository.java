@@ -1,10 +1,18 @@
 package com.example.api_sell_clothes.Repository;
 
+import com.example.api_sell_clothes.Entity.OrderStatus;
 import com.example.api_sell_clothes.Entity.Orders;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
@@ -12,24 +20,74 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface OrderRepository extends JpaRepository<Orders, Long> {
+public interface OrderRepository extends JpaRepository<Orders, Long>,
+        JpaSpecificationExecutor<Orders>, OrderSearchRepository {
+    // Khóa dòng đơn hàng (SELECT ... FOR UPDATE) để thay đổi dòng hàng không chạy song song với việc chuyển trạng thái
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o FROM Orders o WHERE o.orderId = :orderId")
+    Optional<Orders> findByIdForUpdate(@Param("orderId") Long orderId);
+
     // Tìm kiếm theo user
     List<Orders> findByUserUserId(Long userId);
     Page<Orders> findByUserUserId(Long userId, Pageable pageable);
 
     // Tìm kiếm theo status
-    List<Orders> findByStatus(String status);
-    Page<Orders> findByStatus(String status, Pageable pageable);
+    List<Orders> findByStatus(OrderStatus status);
+    Page<Orders> findByStatus(OrderStatus status, Pageable pageable);
 
     // Tìm kiếm theo khoảng thời gian
     List<Orders> findByOrderDateBetween(LocalDateTime startDate, LocalDateTime endDate);
     Page<Orders> findByOrderDateBetween(LocalDateTime startDate, LocalDateTime endDate, Pageable pageable);
 
     // Tìm kiếm theo status và userId
-    List<Orders> findByStatusAndUserUserId(String status, Long userId);
-    Page<Orders> findByStatusAndUserUserId(String status, Long userId, Pageable pageable);
+    List<Orders> findByStatusAndUserUserId(OrderStatus status, Long userId);
+    Page<Orders> findByStatusAndUserUserId(OrderStatus status, Long userId, Pageable pageable);
+
+    // Danh sách có giới hạn: truyền Pageable.ofSize(cap + 1) để phát hiện kết quả vượt quá giới hạn; user được fetch cùng
+    @Query("SELECT o FROM Orders o JOIN FETCH o.user WHERE o.orderDate BETWEEN :startDate AND :endDate ORDER BY o.orderId")
+    List<Orders> findLimitedByOrderDateBetween(@Param("startDate") LocalDateTime startDate,
+                                               @Param("endDate") LocalDateTime endDate,
+                                               Pageable limit);
+
+    @Query("SELECT o FROM Orders o JOIN FETCH o.user WHERE o.totalAmount BETWEEN :minAmount AND :maxAmount ORDER BY o.orderId")
+    List<Orders> findLimitedByTotalAmountBetween(@Param("minAmount") BigDecimal minAmount,
+                                                 @Param("maxAmount") BigDecimal maxAmount,
+                                                 Pageable limit);
+
+    // Phân trang keyset theo order_id: chỉ đọc các đơn sau afterId
+    @Query("SELECT o FROM Orders o JOIN FETCH o.user WHERE o.orderDate BETWEEN :startDate AND :endDate "
+            + "AND o.orderId > :afterId ORDER BY o.orderId")
+    List<Orders> findPageByOrderDateBetween(@Param("startDate") LocalDateTime startDate,
+                                            @Param("endDate") LocalDateTime endDate,
+                                            @Param("afterId") Long afterId,
+                                            Pageable limit);
+
+    @Query("SELECT o FROM Orders o JOIN FETCH o.user WHERE o.totalAmount BETWEEN :minAmount AND :maxAmount "
+            + "AND o.orderId > :afterId ORDER BY o.orderId")
+    List<Orders> findPageByTotalAmountBetween(@Param("minAmount") BigDecimal minAmount,
+                                              @Param("maxAmount") BigDecimal maxAmount,
+                                              @Param("afterId") Long afterId,
+                                              Pageable limit);
+
+    // Đọc tuần tự cho xuất dữ liệu; phải đóng Stream và gọi trong transaction
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT o FROM Orders o JOIN FETCH o.user WHERE o.orderDate BETWEEN :startDate AND :endDate ORDER BY o.orderId")
+    Stream<Orders> streamByOrderDateBetween(@Param("startDate") LocalDateTime startDate,
+                                            @Param("endDate") LocalDateTime endDate);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT o FROM Orders o JOIN FETCH o.user WHERE o.totalAmount BETWEEN :minAmount AND :maxAmount ORDER BY o.orderId")
+    Stream<Orders> streamByTotalAmountBetween(@Param("minAmount") BigDecimal minAmount,
+                                              @Param("maxAmount") BigDecimal maxAmount);
 
     // Tìm kiếm theo tổng tiền
     List<Orders> findByTotalAmountGreaterThanEqual(BigDecimal amount);
@@ -37,43 +95,46 @@ public interface OrderRepository extends JpaRepository<Orders, Long> {
     List<Orders> findByTotalAmountBetween(BigDecimal minAmount, BigDecimal maxAmount);
 
     // Đếm số đơn hàng theo status
-    long countByStatus(String status);
+    long countByStatus(OrderStatus status);
     long countByUserUserId(Long userId);
 
     // Kiểm tra tồn tại
-    boolean existsByUserUserIdAndStatus(Long userId, String status);
+    boolean existsByUserUserIdAndStatus(Long userId, OrderStatus status);
 
     // Các truy vấn tùy chỉnh
     @Query("SELECT o FROM Orders o WHERE o.user.userId = :userId AND o.orderDate >= :startDate")
     List<Orders> findUserOrdersFromDate(@Param("userId") Long userId, @Param("startDate") LocalDateTime startDate);
 
     @Query("SELECT o FROM Orders o WHERE o.status = :status AND o.totalAmount >= :minAmount ORDER BY o.orderDate DESC")
-    List<Orders> findOrdersByStatusAndMinAmount(@Param("status") String status, @Param("minAmount") BigDecimal minAmount);
+    List<Orders> findOrdersByStatusAndMinAmount(@Param("status") OrderStatus status, @Param("minAmount") BigDecimal minAmount);
 
     @Query("SELECT DISTINCT o.status FROM Orders o")
-    List<String> findAllDistinctStatuses();
-
-    @Query("SELECT o FROM Orders o WHERE " +
-            "(:userId IS NULL OR o.user.userId = :userId) AND " +
-            "(:status IS NULL OR o.status = :status) AND " +
-            "(:startDate IS NULL OR o.orderDate >= :startDate) AND " +
-            "(:endDate IS NULL OR o.orderDate <= :endDate)")
-    Page<Orders> findOrdersWithFilters(
-            @Param("userId") Long userId,
-            @Param("status") String status,
-            @Param("startDate") LocalDateTime startDate,
-            @Param("endDate") LocalDateTime endDate,
-            Pageable pageable
-    );
+    List<OrderStatus> findAllDistinctStatuses();
+
+    // Chỉ sinh điều kiện cho tham số khác null để PostgreSQL chọn được index (user_id, order_date) / (status, order_date)
+    default Page<Orders> findOrdersWithFilters(Long userId, OrderStatus status,
+                                               LocalDateTime startDate, LocalDateTime endDate,
+                                               Pageable pageable) {
+        return findAll(OrderSpecifications.withFilters(userId, status, startDate, endDate)
+                .and(OrderSpecifications.fetchUser()), pageable);
+    }
+
+    // Như trên nhưng không chạy truy vấn COUNT
+    default Slice<Orders> findOrdersSliceWithFilters(Long userId, OrderStatus status,
+                                                     LocalDateTime startDate, LocalDateTime endDate,
+                                                     Pageable pageable) {
+        return findSlice(OrderSpecifications.withFilters(userId, status, startDate, endDate)
+                .and(OrderSpecifications.fetchUser()), pageable);
+    }
 
     // Thống kê
     @Query("SELECT COUNT(o), o.status FROM Orders o GROUP BY o.status")
     List<Object[]> countOrdersByStatus();
 
     @Query("SELECT SUM(o.totalAmount) FROM Orders o WHERE o.status = :status")
-    BigDecimal calculateTotalAmountByStatus(@Param("status") String status);
+    BigDecimal calculateTotalAmountByStatus(@Param("status") OrderStatus status);
 
-    @Query("SELECT o FROM Orders o WHERE " +
+    @Query("SELECT o FROM Orders o JOIN FETCH o.user WHERE " +
             "o.orderDate >= :startDate AND " +
             "o.orderDate <= :endDate AND " +
             "o.status = :status " +
@@ -81,7 +142,7 @@ public interface OrderRepository extends JpaRepository<Orders, Long> {
     List<Orders> findTopOrdersByAmountInPeriod(
             @Param("startDate") LocalDateTime startDate,
             @Param("endDate") LocalDateTime endDate,
-            @Param("status") String status,
+            @Param("status") OrderStatus status,
             Pageable pageable
     );
 }
\ No newline at end of file
@@ -0,0 +1,14 @@
+package com.example.api_sell_clothes.Repository;
+
+import com.example.api_sell_clothes.Entity.Orders;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * Tìm kiếm đơn hàng dạng Slice: không chạy truy vấn COUNT, chỉ lấy dư một bản ghi để biết còn trang sau hay không
+ */
+public interface OrderSearchRepository {
+
+    Slice<Orders> findSlice(Specification<Orders> specification, Pageable pageable);
+}
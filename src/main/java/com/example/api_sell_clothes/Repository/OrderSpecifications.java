@@ -0,0 +1,54 @@
+package com.example.api_sell_clothes.Repository;
+
+import com.example.api_sell_clothes.Entity.OrderStatus;
+import com.example.api_sell_clothes.Entity.Orders;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+
+/**
+ * Các điều kiện lọc đơn hàng; điều kiện nào có tham số null thì bỏ qua để câu SQL chỉ chứa điều kiện thực sự có
+ */
+public class OrderSpecifications {
+
+    private OrderSpecifications() {
+    }
+
+    public static Specification<Orders> userIdEquals(Long userId) {
+        return (root, query, cb) -> userId == null ? null : cb.equal(root.get("user").get("userId"), userId);
+    }
+
+    public static Specification<Orders> statusEquals(OrderStatus status) {
+        return (root, query, cb) -> status == null ? null : cb.equal(root.get("status"), status);
+    }
+
+    public static Specification<Orders> orderedFrom(LocalDateTime startDate) {
+        return (root, query, cb) -> startDate == null
+                ? null
+                : cb.greaterThanOrEqualTo(root.get("orderDate"), startDate);
+    }
+
+    public static Specification<Orders> orderedTo(LocalDateTime endDate) {
+        return (root, query, cb) -> endDate == null
+                ? null
+                : cb.lessThanOrEqualTo(root.get("orderDate"), endDate);
+    }
+
+    public static Specification<Orders> withFilters(Long userId, OrderStatus status,
+                                                    LocalDateTime startDate, LocalDateTime endDate) {
+        return Specification.where(userIdEquals(userId))
+                .and(statusEquals(status))
+                .and(orderedFrom(startDate))
+                .and(orderedTo(endDate));
+    }
+
+    // Fetch user cùng đơn hàng (mapper cần username); bỏ qua ở truy vấn COUNT vì không thể fetch khi đếm
+    public static Specification<Orders> fetchUser() {
+        return (root, query, cb) -> {
+            if (query.getResultType() != Long.class && query.getResultType() != long.class) {
+                root.fetch("user");
+            }
+            return null;
+        };
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.api_sell_clothes.Repository;
+
+import com.example.api_sell_clothes.DTO.ProductsDTO;
+import com.example.api_sell_clothes.Entity.Products;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Truy vấn lọc sản phẩm kèm facet, dùng chung một Specification cho trang kết quả và phần đếm
+ */
+public interface ProductFacetRepository {
+
+    record FacetRow(Long categoryId, int priceBucket, long count) {
+    }
+
+    // Trang kết quả (projection DTO) không kèm truy vấn COUNT riêng (tổng số lấy từ facet)
+    List<ProductsDTO> findPage(Specification<Products> specification, Pageable pageable);
+
+    /**
+     * Một truy vấn GROUP BY (category_id, khoảng giá); priceBucket = số mốc giá nhỏ hơn hoặc bằng giá sản phẩm
+     */
+    List<FacetRow> countFacets(Specification<Products> specification, List<BigDecimal> priceBoundaries);
+}
@@ -0,0 +1,87 @@
+package com.example.api_sell_clothes.Repository;
+
+import com.example.api_sell_clothes.DTO.ProductsDTO;
+import com.example.api_sell_clothes.Entity.Products;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.*;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+public class ProductFacetRepositoryImpl implements ProductFacetRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<ProductsDTO> findPage(Specification<Products> specification, Pageable pageable) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<ProductsDTO> query = cb.createQuery(ProductsDTO.class);
+        Root<Products> root = query.from(Products.class);
+
+        query.select(cb.construct(ProductsDTO.class,
+                root.get("productId"),
+                root.get("productName"),
+                root.get("productDescription"),
+                root.get("price"),
+                root.get("stock"),
+                root.get("category").get("categoryId"),
+                root.get("imageUrl"),
+                root.get("createdAt"),
+                root.get("updatedAt"),
+                root.get("version")));
+
+        Predicate predicate = specification.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.orderBy(QueryUtils.toOrders(pageable.getSort(), root, cb));
+
+        return entityManager.createQuery(query)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize())
+                .getResultList();
+    }
+
+    @Override
+    public List<FacetRow> countFacets(Specification<Products> specification, List<BigDecimal> priceBoundaries) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Products> root = query.from(Products.class);
+
+        Predicate predicate = specification.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+
+        Expression<Long> categoryId = root.get("category").get("categoryId");
+        Expression<Integer> priceBucket = priceBucket(cb, root.get("price"), priceBoundaries);
+        query.multiselect(categoryId, priceBucket, cb.count(root))
+                .groupBy(categoryId, priceBucket);
+
+        return entityManager.createQuery(query).getResultList().stream()
+                .map(tuple -> new FacetRow(
+                        tuple.get(0, Long.class),
+                        tuple.get(1, Integer.class),
+                        tuple.get(2, Long.class)))
+                .toList();
+    }
+
+    // CASE WHEN price < b0 THEN 0 WHEN price < b1 THEN 1 ... ELSE n END; mốc giá là literal nên SELECT và GROUP BY khớp nhau
+    private static Expression<Integer> priceBucket(CriteriaBuilder cb, Path<BigDecimal> price,
+                                                   List<BigDecimal> boundaries) {
+        if (boundaries.isEmpty()) {
+            return cb.literal(0);
+        }
+        CriteriaBuilder.Case<Integer> bucket = cb.selectCase();
+        for (int i = 0; i < boundaries.size(); i++) {
+            bucket = bucket.when(cb.lessThan(price, cb.literal(boundaries.get(i))), cb.literal(i));
+        }
+        return bucket.otherwise(cb.literal(boundaries.size()));
+    }
+}
@@ -1,16 +1,79 @@
 package com.example.api_sell_clothes.Repository;
 
+import com.example.api_sell_clothes.DTO.ProductsDTO;
 import com.example.api_sell_clothes.Entity.Products;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+public interface ProductRepository extends JpaRepository<Products, Long>,
+        JpaSpecificationExecutor<Products>, ProductFacetRepository {
+    // Projection thẳng vào DTO: chỉ lấy các cột cần thiết, category_id đọc từ khóa ngoại nên không khởi tạo proxy Categories
+    String PRODUCT_DTO_SELECT = "SELECT new com.example.api_sell_clothes.DTO.ProductsDTO("
+            + "p.productId, p.productName, p.productDescription, p.price, p.stock, "
+            + "p.category.categoryId, p.imageUrl, p.createdAt, p.updatedAt, p.version) FROM Products p ";
 
-public interface ProductRepository extends JpaRepository<Products, Long> {
     Products findByProductName(String productName);
-    List<Products> findByCategory_CategoryId(Long categoryId);
-    List<Products> findByProductNameContainingIgnoreCaseOrProductDescriptionContainingIgnoreCase(
-            String name, String description);
-    List<Products> findByPriceBetween(BigDecimal minPrice, BigDecimal maxPrice);
-    List<Products> findByStockGreaterThanEqual(Long minStock);
-}
\ No newline at end of file
+
+    // Kiểm tra trùng tên cho cả lô nhập trong một truy vấn
+    @Query("SELECT p.productName FROM Products p WHERE p.productName IN :names")
+    List<String> findExistingNames(@Param("names") Collection<String> names);
+
+    @Query(PRODUCT_DTO_SELECT + "WHERE p.productId = :productId")
+    Optional<ProductsDTO> findDtoById(@Param("productId") Long productId);
+
+    @Query(PRODUCT_DTO_SELECT + "WHERE p.productId IN :productIds")
+    List<ProductsDTO> findDtoByIds(@Param("productIds") Collection<Long> productIds);
+
+    @Query(PRODUCT_DTO_SELECT + "WHERE p.category.categoryId = :categoryId")
+    List<ProductsDTO> findDtoByCategoryId(@Param("categoryId") Long categoryId, Pageable pageable);
+
+    @Query(PRODUCT_DTO_SELECT + "WHERE LOWER(p.productName) LIKE LOWER(CONCAT('%', :keyword, '%')) "
+            + "OR LOWER(p.productDescription) LIKE LOWER(CONCAT('%', :keyword, '%'))")
+    List<ProductsDTO> findDtoByKeyword(@Param("keyword") String keyword, Pageable pageable);
+
+    @Query(PRODUCT_DTO_SELECT + "WHERE p.price BETWEEN :minPrice AND :maxPrice")
+    List<ProductsDTO> findDtoByPriceBetween(@Param("minPrice") BigDecimal minPrice,
+                                            @Param("maxPrice") BigDecimal maxPrice,
+                                            Pageable pageable);
+
+    @Query(PRODUCT_DTO_SELECT + "WHERE p.stock >= :minStock")
+    List<ProductsDTO> findDtoByStockAtLeast(@Param("minStock") Long minStock, Pageable pageable);
+
+    @Query("SELECT COUNT(p) FROM Products p WHERE p.category.categoryId IN :categoryIds")
+    long countByCategoryIds(@Param("categoryIds") List<Long> categoryIds);
+
+    // Phân trang keyset: WHERE product_id > :afterId ORDER BY product_id LIMIT n, dùng index khóa chính
+    @Query(PRODUCT_DTO_SELECT + "WHERE p.productId > :afterId ORDER BY p.productId")
+    List<ProductsDTO> findDtoPageAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    // Đọc tuần tự qua cursor của JDBC (fetch size), phải dùng trong transaction và đóng Stream sau khi dùng
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT p FROM Products p ORDER BY p.productId")
+    Stream<Products> streamAll();
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT p FROM Products p WHERE p.updatedAt > :since ORDER BY p.productId")
+    Stream<Products> streamUpdatedSince(@Param("since") LocalDateTime since);
+
+    @Query("SELECT p.productId FROM Products p")
+    List<Long> findAllProductIds();
+}
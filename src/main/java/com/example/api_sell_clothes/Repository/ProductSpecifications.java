@@ -0,0 +1,34 @@
+package com.example.api_sell_clothes.Repository;
+
+import com.example.api_sell_clothes.Entity.Products;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+
+/**
+ * Các điều kiện lọc sản phẩm; điều kiện nào có tham số null thì bỏ qua
+ */
+public class ProductSpecifications {
+
+    private ProductSpecifications() {
+    }
+
+    public static Specification<Products> priceAtLeast(BigDecimal minPrice) {
+        return (root, query, cb) -> minPrice == null ? null : cb.greaterThanOrEqualTo(root.get("price"), minPrice);
+    }
+
+    public static Specification<Products> priceAtMost(BigDecimal maxPrice) {
+        return (root, query, cb) -> maxPrice == null ? null : cb.lessThanOrEqualTo(root.get("price"), maxPrice);
+    }
+
+    public static Specification<Products> stockAtLeast(Long minStock) {
+        return (root, query, cb) -> minStock == null ? null : cb.greaterThanOrEqualTo(root.get("stock"), minStock);
+    }
+
+    public static Specification<Products> categoryIn(Collection<Long> categoryIds) {
+        return (root, query, cb) -> categoryIds == null
+                ? null
+                : root.get("category").get("categoryId").in(categoryIds);
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.api_sell_clothes.Repository;
+
+import com.example.api_sell_clothes.Entity.RevokedTokens;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface RevokedTokenRepository extends JpaRepository<RevokedTokens, String> {
+    // Token bị thu hồi (ở bất kỳ node nào) sau một thời điểm và chưa hết hạn
+    List<RevokedTokens> findByRevokedAtAfterAndExpiresAtAfter(LocalDateTime revokedAfter, LocalDateTime now);
+
+    boolean existsByJtiAndExpiresAtAfter(String jti, LocalDateTime now);
+
+    @Modifying
+    @Query("DELETE FROM RevokedTokens t WHERE t.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
@@ -2,7 +2,9 @@ package com.example.api_sell_clothes.Repository;
 
 import com.example.api_sell_clothes.Entity.Users;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -24,4 +26,13 @@ public interface UserRepository extends JpaRepository<Users, Long> {
 
     @Query("SELECT COUNT(u) FROM Users u JOIN u.roles r WHERE r.roleName = 'SUPER_ADMIN'")
     long countSuperAdmins();
+
+    // Chỉ lấy version token, dùng cho xác thực stateless
+    @Query("SELECT COALESCE(u.tokenVersion, 0) FROM Users u WHERE u.userId = :userId")
+    Optional<Long> findTokenVersionByUserId(@Param("userId") Long userId);
+
+    // Cập nhật riêng mật khẩu (băm lại khi đăng nhập), không tải entity
+    @Modifying
+    @Query("UPDATE Users u SET u.password = :password WHERE u.username = :username")
+    int updatePassword(@Param("username") String username, @Param("password") String password);
 }
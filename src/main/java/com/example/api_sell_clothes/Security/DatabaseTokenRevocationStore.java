@@ -0,0 +1,102 @@
+package com.example.api_sell_clothes.Security;
+
+import com.example.api_sell_clothes.Entity.RevokedTokens;
+import com.example.api_sell_clothes.Repository.RevokedTokenRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lưu token bị thu hồi vào bảng revoked_tokens để đồng bộ giữa các node.
+ * Kiểm tra trên request vẫn dùng bản sao trong bộ nhớ; các node định kỳ kéo các bản ghi mới từ DB.
+ * Nếu bản sao trong bộ nhớ đầy, token không vừa vẫn nằm trong DB và isRevoked tra DB cho đến khi
+ * token bị bỏ sót cuối cùng hết hạn.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "jwt.revocation.store", havingValue = "database")
+public class DatabaseTokenRevocationStore implements TokenRevocationStore {
+
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final ExpiringTokenSet revoked;
+    private final long syncIntervalMillis;
+    private volatile LocalDateTime lastSync;
+    // Thời điểm hết hạn muộn nhất của các token không vừa bộ nhớ; trước thời điểm này phải tra DB
+    private final AtomicLong overflowUntil = new AtomicLong();
+
+    public DatabaseTokenRevocationStore(RevokedTokenRepository revokedTokenRepository,
+                                        @Value("${jwt.revocation.bucket-millis:60000}") long bucketMillis,
+                                        @Value("${jwt.revocation.max-entries:1000000}") int maxEntries,
+                                        @Value("${jwt.revocation.sync-interval:5000}") long syncIntervalMillis) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.revoked = new ExpiringTokenSet(bucketMillis, maxEntries);
+        this.syncIntervalMillis = syncIntervalMillis;
+    }
+
+    @Override
+    public void revoke(String jti, Instant expiresAt) {
+        revokedTokenRepository.save(RevokedTokens.builder()
+                .jti(jti)
+                .expiresAt(LocalDateTime.ofInstant(expiresAt, ZoneId.systemDefault()))
+                .revokedAt(LocalDateTime.now())
+                .build());
+        addToMemory(jti, expiresAt);
+    }
+
+    @Override
+    public boolean isRevoked(String jti) {
+        if (revoked.contains(jti)) {
+            return true;
+        }
+        if (overflowUntil.get() <= System.currentTimeMillis()) {
+            return false;
+        }
+        return revokedTokenRepository.existsByJtiAndExpiresAtAfter(jti, LocalDateTime.now());
+    }
+
+    private void addToMemory(String jti, Instant expiresAt) {
+        if (!revoked.add(jti, expiresAt)) {
+            overflowUntil.accumulateAndGet(expiresAt.toEpochMilli(), Math::max);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        sync();
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.revocation.sync-interval:5000}")
+    public void sync() {
+        LocalDateTime now = LocalDateTime.now();
+        // Lùi lại một chu kỳ để không bỏ sót bản ghi do lệch đồng hồ giữa các node
+        LocalDateTime since = lastSync == null
+                ? LocalDateTime.of(1970, 1, 1, 0, 0)
+                : lastSync.minusNanos(syncIntervalMillis * 1_000_000);
+        List<RevokedTokens> tokens = revokedTokenRepository.findByRevokedAtAfterAndExpiresAtAfter(since, now);
+        for (RevokedTokens token : tokens) {
+            addToMemory(token.getJti(), token.getExpiresAt().atZone(ZoneId.systemDefault()).toInstant());
+        }
+        lastSync = now;
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.revocation.bucket-millis:60000}")
+    @Transactional
+    public void purgeExpired() {
+        revoked.purgeExpired();
+        int deleted = revokedTokenRepository.deleteExpired(LocalDateTime.now());
+        if (deleted > 0) {
+            log.debug("Đã xóa {} token thu hồi đã hết hạn", deleted);
+        }
+    }
+}
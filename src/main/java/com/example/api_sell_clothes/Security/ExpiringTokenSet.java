@@ -0,0 +1,94 @@
+package com.example.api_sell_clothes.Security;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tập jti có hạn dùng, chia bucket theo thời điểm hết hạn.
+ * Tra cứu O(1) qua map jti -> expiry; dọn dẹp xóa nguyên bucket đã hết hạn.
+ * Không bao giờ bỏ token còn hạn: khi đầy (sau khi đã dọn token hết hạn), add trả về false để nơi gọi xử lý.
+ */
+@Slf4j
+class ExpiringTokenSet {
+
+    private final long bucketMillis;
+    private final int maxEntries;
+    private final Map<String, Long> expiries = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<Long, Set<String>> buckets = new ConcurrentSkipListMap<>();
+    private final AtomicInteger size = new AtomicInteger();
+
+    ExpiringTokenSet(long bucketMillis, int maxEntries) {
+        this.bucketMillis = bucketMillis;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * @return false nếu tập đã đầy và token chưa được thêm; true nếu token đã có trong tập hoặc đã hết hạn
+     */
+    boolean add(String jti, Instant expiresAt) {
+        long expiry = expiresAt.toEpochMilli();
+        if (expiry <= System.currentTimeMillis()) {
+            return true;
+        }
+        if (!reserveSlot()) {
+            return expiries.containsKey(jti);
+        }
+        if (expiries.putIfAbsent(jti, expiry) != null) {
+            size.decrementAndGet();
+            return true;
+        }
+        buckets.computeIfAbsent(expiry / bucketMillis, key -> ConcurrentHashMap.newKeySet()).add(jti);
+        return true;
+    }
+
+    boolean contains(String jti) {
+        Long expiry = expiries.get(jti);
+        return expiry != null && expiry > System.currentTimeMillis();
+    }
+
+    int size() {
+        return size.get();
+    }
+
+    /**
+     * Xóa các bucket mà mọi token trong đó đều đã hết hạn
+     */
+    void purgeExpired() {
+        long currentBucket = System.currentTimeMillis() / bucketMillis;
+        Iterator<Map.Entry<Long, Set<String>>> iterator = buckets.headMap(currentBucket).entrySet().iterator();
+        while (iterator.hasNext()) {
+            removeBucket(iterator.next().getValue());
+            iterator.remove();
+        }
+    }
+
+    private boolean reserveSlot() {
+        if (size.incrementAndGet() <= maxEntries) {
+            return true;
+        }
+        size.decrementAndGet();
+        // Thử dọn các token đã hết hạn trước khi từ chối
+        purgeExpired();
+        if (size.incrementAndGet() <= maxEntries) {
+            return true;
+        }
+        size.decrementAndGet();
+        log.warn("Danh sách token bị thu hồi đã đầy ({} phần tử còn hạn)", maxEntries);
+        return false;
+    }
+
+    private void removeBucket(Set<String> jtis) {
+        for (String jti : jtis) {
+            if (expiries.remove(jti) != null) {
+                size.decrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.api_sell_clothes.Security;
+
+import com.example.api_sell_clothes.Exception.Common.ServiceUnavailableException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+
+/**
+ * Lưu token bị thu hồi trong bộ nhớ của node hiện tại (mặc định).
+ * Khi đã đầy jwt.revocation.max-entries token còn hạn thì từ chối thu hồi thêm (503).
+ */
+@Component
+@ConditionalOnProperty(name = "jwt.revocation.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryTokenRevocationStore implements TokenRevocationStore {
+
+    private final ExpiringTokenSet revoked;
+
+    public InMemoryTokenRevocationStore(@Value("${jwt.revocation.bucket-millis:60000}") long bucketMillis,
+                                        @Value("${jwt.revocation.max-entries:1000000}") int maxEntries) {
+        this.revoked = new ExpiringTokenSet(bucketMillis, maxEntries);
+    }
+
+    @Override
+    public void revoke(String jti, Instant expiresAt) {
+        // Không có nơi lưu dự phòng: báo lỗi thay vì để token đã đăng xuất tiếp tục hợp lệ
+        if (!revoked.add(jti, expiresAt)) {
+            throw new ServiceUnavailableException("Không thể thu hồi token lúc này, vui lòng thử lại sau");
+        }
+    }
+
+    @Override
+    public boolean isRevoked(String jti) {
+        return revoked.contains(jti);
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.revocation.bucket-millis:60000}")
+    public void purgeExpired() {
+        revoked.purgeExpired();
+    }
+}
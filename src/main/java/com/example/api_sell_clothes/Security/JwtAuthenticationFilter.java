@@ -1,6 +1,8 @@
 package com.example.api_sell_clothes.Security;
 
 import com.example.api_sell_clothes.Service.JwtService;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -44,16 +46,37 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         // Trích xuất JWT từ header Authorization (bỏ qua tiền tố "Bearer ")
         jwt = authHeader.substring(7);
 
-        // Lấy username từ token bằng phương thức extractUsername của jwtService
-        username = jwtService.extractUsername(jwt);
+        // Parse và verify token đúng một lần cho mỗi request (kết quả được cache theo token)
+        final Claims claims;
+        try {
+            claims = jwtService.extractAllClaims(jwt);
+        } catch (JwtException e) {
+            filterChain.doFilter(request, response);
+            return; // Token không hợp lệ, để entry point trả về 401
+        }
+        username = claims.getSubject();
+
+        // Chế độ stateless: dựng Authentication từ claims, không đọc người dùng từ DB
+        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null
+                && jwtService.isStatelessAuthentication()) {
+            if (jwtService.isTokenValidStateless(claims)) {
+                UserPrincipal principal = UserPrincipal.fromClaims(claims);
+                UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
+                        principal, null, principal.getAuthorities());
+                authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                SecurityContextHolder.getContext().setAuthentication(authToken);
+            }
+            filterChain.doFilter(request, response);
+            return;
+        }
 
         // Kiểm tra nếu username không null và chưa có người dùng nào được xác thực trong SecurityContext
         if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
             // Tải thông tin người dùng từ UserDetailsService dựa trên username
             UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
 
-            // Kiểm tra token có hợp lệ không bằng phương thức isTokenValid của jwtService
-            if (jwtService.isTokenValid(jwt)) {
+            // Kiểm tra token dựa trên claims đã parse, không verify lại chữ ký
+            if (jwtService.isTokenValid(claims, userDetails)) {
                 // Tạo đối tượng UsernamePasswordAuthenticationToken để xác thực người dùng
                 UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                         userDetails, null, userDetails.getAuthorities());
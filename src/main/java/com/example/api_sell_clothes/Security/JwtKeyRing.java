@@ -0,0 +1,132 @@
+package com.example.api_sell_clothes.Security;
+
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.LocatorAdapter;
+import io.jsonwebtoken.UnsupportedJwtException;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.SecretKey;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.Key;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Tập khóa HMAC dùng để ký/xác minh JWT, giải mã một lần và hoán đổi nguyên tử khi xoay khóa.
+ * <p>
+ * Mặc định chỉ có khóa "default" lấy từ jwt.secret-key. Nếu cấu hình jwt.keys-file, file (định dạng properties)
+ * được đọc lại định kỳ nên có thể xoay khóa mà không cần khởi động lại:
+ * <pre>
+ * active=2024-10
+ * key.2024-10=&lt;base64&gt;
+ * key.default=&lt;base64 khóa cũ, giữ lại cho đến khi token cũ hết hạn&gt;
+ * </pre>
+ * Token được ký bằng khóa active và mang header "kid"; token cũ không có "kid" được xác minh bằng khóa "default".
+ */
+@Slf4j
+@Component
+public class JwtKeyRing extends LocatorAdapter<Key> {
+
+    public static final String DEFAULT_KID = "default";
+
+    public record SigningKey(String kid, SecretKey key) {
+    }
+
+    private record KeySet(SigningKey active, Map<String, SecretKey> keys) {
+    }
+
+    private final String defaultSecret;
+    private final String keysFile;
+    private final JwtClaimsCache claimsCache;
+    private final AtomicReference<KeySet> current = new AtomicReference<>();
+    private volatile long keysFileLastModified = -1L;
+
+    public JwtKeyRing(@Value("${jwt.secret-key}") String defaultSecret,
+                      @Value("${jwt.keys-file:}") String keysFile,
+                      JwtClaimsCache claimsCache) {
+        this.defaultSecret = defaultSecret;
+        this.keysFile = keysFile;
+        this.claimsCache = claimsCache;
+        this.current.set(defaultKeySet());
+        reloadIfChanged();
+    }
+
+    public SigningKey signingKey() {
+        return current.get().active();
+    }
+
+    @Override
+    protected Key locate(JwsHeader header) {
+        String kid = header.getKeyId() != null ? header.getKeyId() : DEFAULT_KID;
+        SecretKey key = current.get().keys().get(kid);
+        if (key == null) {
+            throw new UnsupportedJwtException("Không tìm thấy khóa ký JWT / Unknown JWT key id: " + kid);
+        }
+        return key;
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.keys-reload-interval:60000}")
+    public void reloadIfChanged() {
+        if (keysFile == null || keysFile.isBlank()) {
+            return;
+        }
+        Path path = Path.of(keysFile);
+        try {
+            long lastModified = Files.getLastModifiedTime(path).toMillis();
+            if (lastModified == keysFileLastModified) {
+                return;
+            }
+            KeySet keySet = loadKeySet(path);
+            current.set(keySet);
+            keysFileLastModified = lastModified;
+            // Claims đã cache có thể thuộc khóa vừa bị loại bỏ
+            claimsCache.invalidateAll();
+            log.info("Đã nạp {} khóa JWT, khóa đang dùng: {}", keySet.keys().size(), keySet.active().kid());
+        } catch (IOException | RuntimeException e) {
+            log.error("Không thể nạp file khóa JWT {}, giữ nguyên tập khóa hiện tại", keysFile, e);
+        }
+    }
+
+    private KeySet defaultKeySet() {
+        SecretKey key = decode(defaultSecret);
+        return new KeySet(new SigningKey(DEFAULT_KID, key), Map.of(DEFAULT_KID, key));
+    }
+
+    private KeySet loadKeySet(Path path) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(path)) {
+            properties.load(in);
+        }
+
+        Map<String, SecretKey> keys = new HashMap<>();
+        for (String name : properties.stringPropertyNames()) {
+            if (name.startsWith("key.")) {
+                keys.put(name.substring(4), decode(properties.getProperty(name).trim()));
+            }
+        }
+        if (keys.isEmpty()) {
+            return defaultKeySet();
+        }
+
+        String activeKid = properties.getProperty("active", DEFAULT_KID).trim();
+        SecretKey activeKey = keys.get(activeKid);
+        if (activeKey == null) {
+            throw new IllegalStateException("Khóa active '" + activeKid + "' không có trong file khóa");
+        }
+        return new KeySet(new SigningKey(activeKid, activeKey), Map.copyOf(keys));
+    }
+
+    private static SecretKey decode(String base64Secret) {
+        return Keys.hmacShaKeyFor(Decoders.BASE64.decode(base64Secret));
+    }
+}
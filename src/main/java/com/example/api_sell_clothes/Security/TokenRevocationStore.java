@@ -0,0 +1,14 @@
+package com.example.api_sell_clothes.Security;
+
+import java.time.Instant;
+
+/**
+ * Lưu các token đã bị thu hồi (theo claim "jti") cho đến khi token hết hạn.
+ * isRevoked nằm trên đường xử lý mọi request nên phải O(1) và không truy cập DB.
+ */
+public interface TokenRevocationStore {
+
+    void revoke(String jti, Instant expiresAt);
+
+    boolean isRevoked(String jti);
+}
@@ -0,0 +1,48 @@
+package com.example.api_sell_clothes.Security;
+
+import com.example.api_sell_clothes.Event.UserSecurityChangedEvent;
+import com.example.api_sell_clothes.Repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+
+/**
+ * Lưu version token hiện tại của từng người dùng để xác thực stateless.
+ * Token mang claim "ver"; khi vai trò/trạng thái người dùng thay đổi, version trong DB được tăng
+ * nên các token cũ bị từ chối. Node hiện tại cập nhật ngay sau commit, các node khác sau tối đa một TTL.
+ */
+@Component
+public class TokenVersionRegistry {
+
+    // Người dùng không còn tồn tại
+    private static final long MISSING = -1L;
+
+    private final LoadingCache<Long, Long> versions;
+
+    public TokenVersionRegistry(UserRepository userRepository,
+                                @Value("${jwt.stateless.version-cache-ttl:60s}") Duration ttl,
+                                @Value("${jwt.stateless.version-cache-max-size:100000}") long maxSize) {
+        this.versions = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build(userId -> userRepository.findTokenVersionByUserId(userId).orElse(MISSING));
+    }
+
+    public boolean isCurrent(Long userId, long tokenVersion) {
+        if (userId == null) {
+            return false;
+        }
+        long current = versions.get(userId);
+        return current != MISSING && current == tokenVersion;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onUserSecurityChanged(UserSecurityChangedEvent event) {
+        versions.invalidate(event.getUserId());
+    }
+}
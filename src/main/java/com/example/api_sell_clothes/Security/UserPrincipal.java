@@ -0,0 +1,88 @@
+package com.example.api_sell_clothes.Security;
+
+import com.example.api_sell_clothes.Entity.Users;
+import io.jsonwebtoken.Claims;
+import lombok.Getter;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Principal của người dùng đã xác thực, mang thêm userId, email, fullName và version của token
+ */
+@Getter
+public class UserPrincipal extends User {
+
+    private final Long userId;
+    private final String email;
+    private final String fullName;
+    private final long tokenVersion;
+
+    public UserPrincipal(Long userId, String username, String password, boolean enabled,
+                         String email, String fullName, long tokenVersion,
+                         Collection<? extends GrantedAuthority> authorities) {
+        super(username, password, enabled, true, true, true, authorities);
+        this.userId = userId;
+        this.email = email;
+        this.fullName = fullName;
+        this.tokenVersion = tokenVersion;
+    }
+
+    /**
+     * Bản sao độc lập; Spring Security xóa mật khẩu trên principal sau khi xác thực nên không trả về instance đã cache
+     */
+    public UserPrincipal copy() {
+        return new UserPrincipal(userId, getUsername(), getPassword(), isEnabled(),
+                email, fullName, tokenVersion, getAuthorities());
+    }
+
+    public UserPrincipal withPassword(String newPassword) {
+        return new UserPrincipal(userId, getUsername(), newPassword, isEnabled(),
+                email, fullName, tokenVersion, getAuthorities());
+    }
+
+    public static UserPrincipal from(Users user) {
+        List<SimpleGrantedAuthority> authorities = user.getRoles().stream()
+                .map(role -> new SimpleGrantedAuthority("ROLE_" + role.getRoleName()))
+                .collect(Collectors.toList());
+
+        return new UserPrincipal(
+                user.getUserId(),
+                user.getUsername(),
+                user.getPassword(),
+                Boolean.TRUE.equals(user.getEnabled()),
+                user.getEmail(),
+                user.getFullName(),
+                user.getTokenVersion() != null ? user.getTokenVersion() : 0L,
+                authorities
+        );
+    }
+
+    /**
+     * Dựng principal trực tiếp từ claims của access token (chế độ stateless, không đọc DB)
+     */
+    @SuppressWarnings("unchecked")
+    public static UserPrincipal fromClaims(Claims claims) {
+        List<String> roles = (List<String>) claims.getOrDefault("roles", new ArrayList<>());
+        List<SimpleGrantedAuthority> authorities = roles.stream()
+                .map(SimpleGrantedAuthority::new)
+                .collect(Collectors.toList());
+        Long tokenVersion = claims.get("ver", Long.class);
+
+        return new UserPrincipal(
+                claims.get("userId", Long.class),
+                claims.getSubject(),
+                "",
+                true,
+                claims.get("email", String.class),
+                claims.get("fullName", String.class),
+                tokenVersion != null ? tokenVersion : 0L,
+                authorities
+        );
+    }
+}
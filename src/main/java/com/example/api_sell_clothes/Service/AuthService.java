@@ -1,16 +1,17 @@
 package com.example.api_sell_clothes.Service;
 
-import com.example.api_sell_clothes.DTO.UsersDTO;
 import com.example.api_sell_clothes.DTO.Auth.*;
 import com.example.api_sell_clothes.Entity.Users;
 import com.example.api_sell_clothes.Entity.Roles;
+import com.example.api_sell_clothes.Event.UserSecurityChangedEvent;
 import com.example.api_sell_clothes.Exception.AuthException.ResourceNotFoundException;
-import com.example.api_sell_clothes.Mapper.UserMapper;
 import com.example.api_sell_clothes.Repository.UserRepository;
+import com.example.api_sell_clothes.Security.UserPrincipal;
 import com.example.api_sell_clothes.Utils.AuthValidationUtils;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -33,12 +34,12 @@ public class AuthService {
     private final JwtService jwtService;
     private final AuthenticationManager authenticationManager;
     private final RoleService roleService;
-    private final UserMapper userMapper;
     private final PasswordEncoder passwordEncoder;
+    private final ApplicationEventPublisher eventPublisher;
+    private final LastLoginRecorder lastLoginRecorder;
 
     private static final String DEFAULT_SUPER_ADMIN = "super admin";
 
-    @Transactional
     public AuthResponse authenticate(AuthRequest request) {
         AuthValidationUtils.validateAuthRequest(request);
 
@@ -47,16 +48,15 @@ public class AuthService {
                     new UsernamePasswordAuthenticationToken(request.getUsername(), request.getPassword())
             );
 
-            var user = userRepository.findByUsername(request.getUsername())
-                    .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy người dùng"));
+            // Dùng lại principal DaoAuthenticationProvider vừa tải, không truy vấn lại user
+            UserPrincipal principal = (UserPrincipal) authentication.getPrincipal();
 
-            String token = jwtService.generateToken(user);
-            String refreshToken = jwtService.generateRefreshToken(user);
+            String token = jwtService.generateToken(principal);
+            String refreshToken = jwtService.generateRefreshToken(principal);
 
-            user.setUpdatedAt(LocalDateTime.now());
-            userRepository.save(user);
+            lastLoginRecorder.record(principal.getUserId());
 
-            return buildAuthResponse(user, token, refreshToken);
+            return buildAuthResponse(principal, token, refreshToken);
         } catch (AuthenticationException e) {
             throw new IllegalArgumentException("Tên đăng nhập hoặc mật khẩu không đúng", e);
         }
@@ -81,7 +81,7 @@ public class AuthService {
             String token = jwtService.generateToken(savedUser);
             String refreshToken = jwtService.generateRefreshToken(savedUser);
 
-            return buildAuthResponse(savedUser, token, refreshToken);
+            return buildAuthResponse(UserPrincipal.from(savedUser), token, refreshToken);
         } catch (Exception e) {
             throw e;
         }
@@ -106,7 +106,7 @@ public class AuthService {
         String token = jwtService.generateToken(savedUser);
         String refreshToken = jwtService.generateRefreshToken(savedUser);
 
-        return buildAuthResponse(savedUser, token, refreshToken);
+        return buildAuthResponse(UserPrincipal.from(savedUser), token, refreshToken);
     }
 
     @PreAuthorize("hasRole('SUPER_ADMIN')")
@@ -128,7 +128,7 @@ public class AuthService {
         String token = jwtService.generateToken(savedUser);
         String refreshToken = jwtService.generateRefreshToken(savedUser);
 
-        return buildAuthResponse(savedUser, token, refreshToken);
+        return buildAuthResponse(UserPrincipal.from(savedUser), token, refreshToken);
     }
 
     @PreAuthorize("hasAnyRole('ADMIN', 'SUPER_ADMIN')")
@@ -146,6 +146,7 @@ public class AuthService {
         user.setPassword(passwordEncoder.encode(request.getNewPassword()));
         user.setUpdatedAt(LocalDateTime.now());
         userRepository.save(user);
+        publishSecurityChange(user);
     }
 
     @PreAuthorize("hasRole('SUPER_ADMIN')")
@@ -164,6 +165,7 @@ public class AuthService {
         targetUser.setPassword(passwordEncoder.encode(request.getNewPassword()));
         targetUser.setUpdatedAt(LocalDateTime.now());
         userRepository.save(targetUser);
+        publishSecurityChange(targetUser);
     }
 
     @PreAuthorize("hasRole('SUPER_ADMIN')")
@@ -179,6 +181,7 @@ public class AuthService {
         }
 
         userRepository.delete(admin);
+        publishSecurityChange(admin);
     }
 
     @PreAuthorize("hasRole('SUPER_ADMIN')")
@@ -204,6 +207,7 @@ public class AuthService {
         }
 
         userRepository.delete(superAdmin);
+        publishSecurityChange(superAdmin);
     }
 
     @PreAuthorize("hasAnyRole('ADMIN', 'SUPER_ADMIN')")
@@ -231,7 +235,9 @@ public class AuthService {
                 .collect(Collectors.toSet());
 
         user.setRoles(newRoles);
+        user.bumpTokenVersion();
         userRepository.save(user);
+        publishSecurityChange(user);
     }
 
     @PreAuthorize("hasAnyRole('SUPER_ADMIN')")
@@ -255,7 +261,9 @@ public class AuthService {
 
         user.setEnabled(false);
         user.setUpdatedAt(LocalDateTime.now());
+        user.bumpTokenVersion();
         userRepository.save(user);
+        publishSecurityChange(user);
     }
 
     @PreAuthorize("hasAnyRole('SUPER_ADMIN')")
@@ -267,6 +275,7 @@ public class AuthService {
         user.setEnabled(true);
         user.setUpdatedAt(LocalDateTime.now());
         userRepository.save(user);
+        publishSecurityChange(user);
     }
 
     @Transactional
@@ -302,10 +311,9 @@ public class AuthService {
                 .build();
     }
 
-    private AuthResponse buildAuthResponse(Users user, String token, String refreshToken) {
-        UsersDTO userDTO = userMapper.toDto(user);
-        List<String> roles = user.getRoles().stream()
-                .map(role -> role.getRoleName())
+    private AuthResponse buildAuthResponse(UserPrincipal principal, String token, String refreshToken) {
+        List<String> roles = principal.getAuthorities().stream()
+                .map(authority -> authority.getAuthority().substring("ROLE_".length()))
                 .collect(Collectors.toList());
 
         return AuthResponse.builder()
@@ -313,13 +321,17 @@ public class AuthService {
                 .refreshToken(refreshToken)
                 .tokenType("Bearer")
                 .expiresIn(jwtService.getExpirationTime())
-                .username(userDTO.getUsername())
-                .email(userDTO.getEmail())
-                .fullName(userDTO.getFullName())
+                .username(principal.getUsername())
+                .email(principal.getEmail())
+                .fullName(principal.getFullName())
                 .roles(roles)
                 .build();
     }
 
+    private void publishSecurityChange(Users user) {
+        eventPublisher.publishEvent(new UserSecurityChangedEvent(user.getUserId(), user.getUsername()));
+    }
+
     private void validateUniqueUser(String username, String email) {
         if (userRepository.existsByUsername(username)) {
             throw new IllegalArgumentException("Tên đăng nhập đã tồn tại");
@@ -352,6 +364,7 @@ public class AuthService {
         superAdmin.setPassword(passwordEncoder.encode(request.getNewPassword()));
         superAdmin.setUpdatedAt(LocalDateTime.now());
         userRepository.save(superAdmin);
+        publishSecurityChange(superAdmin);
     }
 
     /**
@@ -390,5 +403,6 @@ public class AuthService {
         superAdmin.setPassword(passwordEncoder.encode(request.getNewPassword()));
         superAdmin.setUpdatedAt(LocalDateTime.now());
         userRepository.save(superAdmin);
+        publishSecurityChange(superAdmin);
     }
 }
\ No newline at end of file
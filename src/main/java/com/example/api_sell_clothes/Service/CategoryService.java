@@ -1,15 +1,20 @@
 package com.example.api_sell_clothes.Service;
 
 import com.example.api_sell_clothes.DTO.CategoriesDTO;
+import com.example.api_sell_clothes.DTO.Category.CategoryDeleteResponse;
 import com.example.api_sell_clothes.Entity.Categories;
+import com.example.api_sell_clothes.Event.CategoryChangedEvent;
 import com.example.api_sell_clothes.Exception.Common.*;
 import com.example.api_sell_clothes.Mapper.CategoryMapper;
 import com.example.api_sell_clothes.Repository.CategoryRepository;
+import com.example.api_sell_clothes.Repository.ProductRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import java.time.LocalDateTime;
 import java.util.List;
@@ -20,7 +25,10 @@ import java.util.List;
 @Transactional
 public class CategoryService {
     private final CategoryRepository categoryRepository;
+    private final ProductRepository productRepository;
     private final CategoryMapper categoryMapper;
+    private final CategoryTreeCache categoryTreeCache;
+    private final ApplicationEventPublisher eventPublisher;
 
     // CRUD cho Category cha
     public CategoriesDTO createParentCategory(CategoriesDTO categoryDTO) {
@@ -47,7 +55,7 @@ public class CategoryService {
         return updateCategory(id, categoryDTO);
     }
 
-    public void deleteParentCategory(Long id) {
+    public CategoryDeleteResponse deleteParentCategory(Long id) {
         log.info("Xóa danh mục cha : {}", id);
 
         Categories category = categoryRepository.findById(id)
@@ -57,15 +65,8 @@ public class CategoryService {
             throw new InvalidDataException("ID không phải của danh mục cha");
         }
 
-        // Lấy và xóa tất cả danh mục con
-        List<Categories> children = categoryRepository.findByParentCategoryId(id);
-        if (!children.isEmpty()) {
-            categoryRepository.deleteAll(children);
-            log.info("Đã xóa {} danh mục con của danh mục cha : {}", children.size(), id);
-        }
-
-        // Xóa danh mục cha
-        categoryRepository.delete(category);
+        // Xóa danh mục cha cùng toàn bộ danh mục con cháu
+        return deleteSubtree(id);
     }
 
 
@@ -113,7 +114,7 @@ public class CategoryService {
         return updateCategory(childId, categoryDTO);
     }
 
-    public void deleteChildCategory(Long id) {
+    public CategoryDeleteResponse deleteChildCategory(Long id) {
         log.info("Xóa danh mục con : {}", id);
 
         Categories child = categoryRepository.findById(id)
@@ -123,11 +124,7 @@ public class CategoryService {
             throw new InvalidDataException("ID không phải của danh mục con");
         }
 
-        if (isCategoryInUse(id)) {
-            throw new ResourceInUseException("Danh mục con", "đang được sử dụng bởi sản phẩm");
-        }
-
-        categoryRepository.delete(child);
+        return deleteSubtree(id);
     }
 
     // Các phương thức CRUD cơ bản
@@ -141,8 +138,9 @@ public class CategoryService {
         categoryDTO.setCreatedAt(LocalDateTime.now());
         categoryDTO.setUpdatedAt(LocalDateTime.now());
 
-        Categories category = categoryMapper.toEntity(categoryDTO);
-        return categoryMapper.toDto(categoryRepository.save(category));
+        Categories category = categoryRepository.save(categoryMapper.toEntity(categoryDTO));
+        eventPublisher.publishEvent(new CategoryChangedEvent(category.getCategoryId()));
+        return categoryMapper.toDto(category);
     }
 
     public CategoriesDTO updateCategory(Long id, CategoriesDTO categoryDTO) {
@@ -160,40 +158,55 @@ public class CategoryService {
         existingCategory.setCategoryDescription(categoryDTO.getCategoryDescription());
         existingCategory.setUpdatedAt(LocalDateTime.now());
 
-        return categoryMapper.toDto(categoryRepository.save(existingCategory));
+        Categories savedCategory = categoryRepository.save(existingCategory);
+        eventPublisher.publishEvent(new CategoryChangedEvent(id));
+        return categoryMapper.toDto(savedCategory);
     }
 
-    @Transactional(readOnly = true)
+    // Các truy vấn đọc dùng cây danh mục trong bộ nhớ, không truy cập DB
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public List<CategoriesDTO> getAllCategories() {
         log.info("Lấy tất cả danh mục");
-        List<Categories> categories = categoryRepository.findAll();
-        return categoryMapper.toDto(categories);
+        return categoryTreeCache.get().findAll();
     }
 
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public CategoriesDTO getCategoryById(Long id) {
-        return categoryMapper.toDto(categoryRepository.findById(id)
-                .orElseThrow(() -> new NotFoundException("Danh mục", "id", id)));
+        return categoryTreeCache.get().find(id)
+                .orElseThrow(() -> new NotFoundException("Danh mục", "id", id));
     }
 
     // Các phương thức truy vấn bổ sung
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public List<CategoriesDTO> getParentCategories() {
-        return categoryMapper.toDto(categoryRepository.findByParentCategoryIdIsNull());
+        return categoryTreeCache.get().getRoots();
     }
 
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public List<CategoriesDTO> getChildCategories(Long parentId) {
-        validateParentCategory(parentId);
-        return categoryMapper.toDto(categoryRepository.findByParentCategoryId(parentId));
+        CategoryTree tree = categoryTreeCache.get();
+        validateParentCategory(tree, parentId);
+        return tree.getChildren(parentId);
     }
 
-    @Transactional(readOnly = true)
+    /**
+     * Đường đi từ danh mục gốc đến danh mục (breadcrumb)
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public List<CategoriesDTO> getCategoryPath(Long id) {
+        CategoryTree tree = categoryTreeCache.get();
+        if (!tree.contains(id)) {
+            throw new NotFoundException("Danh mục", "id", id);
+        }
+        return tree.getPath(id);
+    }
+
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public List<CategoriesDTO> searchCategories(String keyword) {
         if (keyword == null || keyword.trim().isEmpty()) {
             throw new InvalidDataException("Từ khóa tìm kiếm không được để trống");
         }
-        return categoryMapper.toDto(categoryRepository.findByCategoryNameContainingIgnoreCase(keyword));
+        return categoryTreeCache.get().search(keyword);
     }
 
     // Các phương thức hỗ trợ
@@ -206,19 +219,38 @@ public class CategoryService {
         }
     }
 
-    private void validateParentCategory(Long parentId) {
-        if (!categoryRepository.existsById(parentId)) {
+    private void validateParentCategory(CategoryTree tree, Long parentId) {
+        if (!tree.contains(parentId)) {
             throw new NotFoundException("Danh mục cha", "id", parentId);
         }
-        Categories parent = categoryRepository.findById(parentId)
-                .orElseThrow(() -> new NotFoundException("Danh mục cha", "id", parentId));
-        if (parent.getParentCategoryId() != null) {
+        if (!tree.isRoot(parentId)) {
             throw new InvalidDataException("ID không phải của danh mục cha");
         }
     }
 
-    private boolean isCategoryInUse(Long categoryId) {
-        // Implement logic kiểm tra sản phẩm
-        return false;
+    /**
+     * Xóa danh mục và toàn bộ con cháu: một CTE đệ quy lấy id cây con, một COUNT kiểm tra sản phẩm,
+     * một DELETE hàng loạt; tất cả trong transaction hiện tại
+     */
+    private CategoryDeleteResponse deleteSubtree(Long id) {
+        List<Long> subtreeIds = categoryRepository.findSubtreeIds(id);
+
+        if (isCategoryInUse(subtreeIds)) {
+            throw new ResourceInUseException("Danh mục", "danh mục hoặc danh mục con đang được sử dụng bởi sản phẩm");
+        }
+
+        int deleted = categoryRepository.deleteByIds(subtreeIds);
+        log.info("Đã xóa {} danh mục (gồm {} danh mục con cháu) của danh mục : {}", deleted, deleted - 1, id);
+        eventPublisher.publishEvent(new CategoryChangedEvent(id));
+
+        return CategoryDeleteResponse.builder()
+                .categoryId(id)
+                .deletedCategories(deleted)
+                .deletedDescendants(Math.max(deleted - 1, 0))
+                .build();
+    }
+
+    private boolean isCategoryInUse(List<Long> categoryIds) {
+        return productRepository.countByCategoryIds(categoryIds) > 0;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,227 @@
+package com.example.api_sell_clothes.Service;
+
+import com.example.api_sell_clothes.DTO.CategoriesDTO;
+import com.example.api_sell_clothes.Entity.Categories;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Ảnh chụp bất biến của toàn bộ cây danh mục.
+ * <p>
+ * Mỗi node có khoảng [tin, tout] theo thứ tự duyệt DFS (Euler tour): node x thuộc cây con của r
+ * khi và chỉ khi tin[r] <= tin[x] && tout[x] <= tout[r]. Các node của một cây con nằm liên tiếp
+ * trong mảng thứ tự duyệt nên lấy cả cây con là một lát cắt. Đường đi từ gốc đến từng node được tính sẵn.
+ */
+public final class CategoryTree {
+
+    private record Node(Long categoryId, String categoryName, String categoryDescription, Long parentCategoryId,
+                        LocalDateTime createdAt, LocalDateTime updatedAt) {
+    }
+
+    private final long version;
+    private final Map<Long, Node> nodes;
+    private final Map<Long, List<Long>> children;
+    private final List<Long> roots;
+    private final Map<Long, List<Long>> ancestors;
+    private final Map<Long, Integer> tin;
+    private final Map<Long, Integer> tout;
+    private final Long[] eulerOrder;
+
+    private CategoryTree(long version, Map<Long, Node> nodes, Map<Long, List<Long>> children, List<Long> roots,
+                         Map<Long, List<Long>> ancestors, Map<Long, Integer> tin, Map<Long, Integer> tout,
+                         Long[] eulerOrder) {
+        this.version = version;
+        this.nodes = nodes;
+        this.children = children;
+        this.roots = roots;
+        this.ancestors = ancestors;
+        this.tin = tin;
+        this.tout = tout;
+        this.eulerOrder = eulerOrder;
+    }
+
+    public static CategoryTree build(long version, Collection<Categories> categories) {
+        Map<Long, Node> nodes = new HashMap<>();
+        for (Categories category : categories) {
+            nodes.put(category.getCategoryId(), new Node(category.getCategoryId(), category.getCategoryName(),
+                    category.getCategoryDescription(), category.getParentCategoryId(),
+                    category.getCreatedAt(), category.getUpdatedAt()));
+        }
+
+        // Danh mục có parent không tồn tại được coi là gốc
+        Map<Long, List<Long>> children = new HashMap<>();
+        List<Long> roots = new ArrayList<>();
+        for (Node node : nodes.values()) {
+            Long parentId = node.parentCategoryId();
+            if (parentId == null || !nodes.containsKey(parentId) || parentId.equals(node.categoryId())) {
+                roots.add(node.categoryId());
+            } else {
+                children.computeIfAbsent(parentId, key -> new ArrayList<>()).add(node.categoryId());
+            }
+        }
+        roots.sort(Comparator.naturalOrder());
+        children.values().forEach(list -> list.sort(Comparator.naturalOrder()));
+
+        Map<Long, Integer> tin = new HashMap<>();
+        Map<Long, Integer> tout = new HashMap<>();
+        Map<Long, List<Long>> ancestors = new HashMap<>();
+        List<Long> order = new ArrayList<>(nodes.size());
+
+        for (Long root : roots) {
+            traverse(root, children, tin, tout, ancestors, order);
+        }
+        // Node nằm trong chu trình (dữ liệu lỗi) không đến được từ gốc nào: cắt chu trình, coi node nhỏ nhất là gốc
+        if (order.size() < nodes.size()) {
+            List<Long> unreached = nodes.keySet().stream()
+                    .filter(id -> !tin.containsKey(id))
+                    .sorted()
+                    .toList();
+            for (Long id : unreached) {
+                if (!tin.containsKey(id)) {
+                    roots.add(id);
+                    traverse(id, children, tin, tout, ancestors, order);
+                }
+            }
+        }
+
+        Map<Long, List<Long>> immutableChildren = new HashMap<>();
+        children.forEach((parentId, list) -> immutableChildren.put(parentId, List.copyOf(list)));
+
+        return new CategoryTree(version, Map.copyOf(nodes), Map.copyOf(immutableChildren), List.copyOf(roots),
+                Map.copyOf(ancestors), Map.copyOf(tin), Map.copyOf(tout), order.toArray(new Long[0]));
+    }
+
+    // DFS không đệ quy để không tràn stack với cây sâu
+    private static void traverse(Long root, Map<Long, List<Long>> children, Map<Long, Integer> tin,
+                                 Map<Long, Integer> tout, Map<Long, List<Long>> ancestors, List<Long> order) {
+        Deque<Long> path = new ArrayDeque<>();
+        Deque<Iterator<Long>> iterators = new ArrayDeque<>();
+
+        enter(root, path, tin, ancestors, order);
+        path.addLast(root);
+        iterators.push(children.getOrDefault(root, List.of()).iterator());
+
+        while (!iterators.isEmpty()) {
+            Iterator<Long> iterator = iterators.peek();
+            if (iterator.hasNext()) {
+                Long child = iterator.next();
+                if (tin.containsKey(child)) {
+                    continue;
+                }
+                enter(child, path, tin, ancestors, order);
+                path.addLast(child);
+                iterators.push(children.getOrDefault(child, List.of()).iterator());
+            } else {
+                iterators.pop();
+                tout.put(path.removeLast(), order.size() - 1);
+            }
+        }
+    }
+
+    private static void enter(Long id, Deque<Long> path, Map<Long, Integer> tin,
+                              Map<Long, List<Long>> ancestors, List<Long> order) {
+        tin.put(id, order.size());
+        order.add(id);
+        ancestors.put(id, List.copyOf(path));
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public int size() {
+        return nodes.size();
+    }
+
+    public boolean contains(Long categoryId) {
+        return categoryId != null && nodes.containsKey(categoryId);
+    }
+
+    public boolean isRoot(Long categoryId) {
+        Node node = nodes.get(categoryId);
+        return node != null && node.parentCategoryId() == null;
+    }
+
+    public Optional<CategoriesDTO> find(Long categoryId) {
+        return Optional.ofNullable(nodes.get(categoryId)).map(CategoryTree::toDto);
+    }
+
+    public List<CategoriesDTO> findAll() {
+        return Arrays.stream(eulerOrder).map(id -> toDto(nodes.get(id))).toList();
+    }
+
+    // Danh mục gốc thực sự (không có parent)
+    public List<CategoriesDTO> getRoots() {
+        return roots.stream()
+                .map(nodes::get)
+                .filter(node -> node.parentCategoryId() == null)
+                .map(CategoryTree::toDto)
+                .toList();
+    }
+
+    public List<CategoriesDTO> getChildren(Long categoryId) {
+        return children.getOrDefault(categoryId, List.of()).stream()
+                .map(id -> toDto(nodes.get(id)))
+                .toList();
+    }
+
+    /**
+     * Id của danh mục và toàn bộ con cháu, theo thứ tự duyệt
+     */
+    public List<Long> getSubtreeIds(Long categoryId) {
+        Integer start = tin.get(categoryId);
+        if (start == null) {
+            return List.of();
+        }
+        return List.of(eulerOrder).subList(start, tout.get(categoryId) + 1);
+    }
+
+    public boolean isInSubtree(Long rootId, Long categoryId) {
+        Integer rootIn = tin.get(rootId);
+        Integer nodeIn = tin.get(categoryId);
+        return rootIn != null && nodeIn != null
+                && rootIn <= nodeIn && tout.get(categoryId) <= tout.get(rootId);
+    }
+
+    /**
+     * Đường đi từ danh mục gốc đến danh mục (bao gồm chính nó)
+     */
+    public List<CategoriesDTO> getPath(Long categoryId) {
+        List<Long> path = ancestors.get(categoryId);
+        if (path == null) {
+            return List.of();
+        }
+        List<CategoriesDTO> result = new ArrayList<>(path.size() + 1);
+        path.forEach(id -> result.add(toDto(nodes.get(id))));
+        result.add(toDto(nodes.get(categoryId)));
+        return result;
+    }
+
+    public List<CategoriesDTO> search(String keyword) {
+        String needle = keyword.toLowerCase(Locale.ROOT);
+        return Arrays.stream(eulerOrder)
+                .map(nodes::get)
+                .filter(node -> node.categoryName() != null
+                        && node.categoryName().toLowerCase(Locale.ROOT).contains(needle))
+                .map(CategoryTree::toDto)
+                .toList();
+    }
+
+    public String getName(Long categoryId) {
+        Node node = nodes.get(categoryId);
+        return node != null ? node.categoryName() : null;
+    }
+
+    // Luôn trả DTO mới để người gọi không sửa được snapshot
+    private static CategoriesDTO toDto(Node node) {
+        return CategoriesDTO.builder()
+                .categoryId(node.categoryId())
+                .categoryName(node.categoryName())
+                .categoryDescription(node.categoryDescription())
+                .parentCategoryId(node.parentCategoryId())
+                .createdAt(node.createdAt())
+                .updatedAt(node.updatedAt())
+                .build();
+    }
+}
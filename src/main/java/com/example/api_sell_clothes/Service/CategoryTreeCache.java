@@ -0,0 +1,84 @@
+package com.example.api_sell_clothes.Service;
+
+import com.example.api_sell_clothes.Event.CategoryChangedEvent;
+import com.example.api_sell_clothes.Repository.CategoryRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Giữ ảnh chụp {@link CategoryTree} hiện tại; dựng lại toàn bộ (một truy vấn) và hoán đổi nguyên tử
+ * sau mỗi thay đổi danh mục đã commit. Người đọc luôn thấy một phiên bản nhất quán, không cần khóa.
+ * Thay đổi từ node khác được phát hiện bằng cách định kỳ so dấu vân tay của bảng categories
+ * (app.categories.tree.check-interval) và dựng lại khi khác.
+ */
+@Slf4j
+@Component
+public class CategoryTreeCache {
+
+    private final CategoryRepository categoryRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final AtomicReference<CategoryTree> current = new AtomicReference<>();
+    private final AtomicLong versionSequence = new AtomicLong();
+    // Dấu vân tay của dữ liệu mà snapshot hiện tại được dựng từ đó
+    private volatile String fingerprint;
+
+    public CategoryTreeCache(CategoryRepository categoryRepository, PlatformTransactionManager transactionManager) {
+        this.categoryRepository = categoryRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // Transaction riêng: listener AFTER_COMMIT chạy khi transaction gốc đã kết thúc
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    public CategoryTree get() {
+        CategoryTree tree = current.get();
+        return tree != null ? tree : rebuild();
+    }
+
+    // Đồng bộ để snapshot dựng sau (đọc dữ liệu mới hơn) không bị snapshot cũ ghi đè
+    public synchronized CategoryTree rebuild() {
+        CategoryTree tree = transactionTemplate.execute(status -> {
+            // Đọc dấu vân tay trước: nếu dữ liệu đổi giữa hai truy vấn thì lần kiểm tra sau sẽ dựng lại
+            fingerprint = categoryRepository.computeFingerprint();
+            return CategoryTree.build(versionSequence.incrementAndGet(), categoryRepository.findAll());
+        });
+        current.set(tree);
+        log.debug("Đã dựng cây danh mục phiên bản {} với {} danh mục", tree.getVersion(), tree.size());
+        return tree;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    @Scheduled(initialDelayString = "${app.categories.tree.check-interval:30000}",
+            fixedDelayString = "${app.categories.tree.check-interval:30000}")
+    public void rebuildIfChanged() {
+        try {
+            String latest = transactionTemplate.execute(status -> categoryRepository.computeFingerprint());
+            if (!latest.equals(fingerprint)) {
+                log.info("Danh mục đã thay đổi ở node khác, dựng lại cây danh mục");
+                rebuild();
+            }
+        } catch (RuntimeException e) {
+            log.error("Không thể kiểm tra thay đổi danh mục", e);
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        rebuild();
+    }
+}
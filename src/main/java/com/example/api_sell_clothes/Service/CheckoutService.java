@@ -0,0 +1,166 @@
+package com.example.api_sell_clothes.Service;
+
+import com.example.api_sell_clothes.DTO.Checkout.CheckoutRequest;
+import com.example.api_sell_clothes.DTO.Checkout.CheckoutResponse;
+import com.example.api_sell_clothes.DTO.ProductsDTO;
+import com.example.api_sell_clothes.Entity.OrderItems;
+import com.example.api_sell_clothes.Entity.OrderStatus;
+import com.example.api_sell_clothes.Entity.Orders;
+import com.example.api_sell_clothes.Event.OrderChangedEvent;
+import com.example.api_sell_clothes.Event.OrderItemsCreatedEvent;
+import com.example.api_sell_clothes.Exception.Common.InsufficientStockException;
+import com.example.api_sell_clothes.Exception.Common.InvalidDataException;
+import com.example.api_sell_clothes.Exception.Common.NotFoundException;
+import com.example.api_sell_clothes.Repository.OrderItemRepository;
+import com.example.api_sell_clothes.Repository.OrderRepository;
+import com.example.api_sell_clothes.Repository.ProductRepository;
+import com.example.api_sell_clothes.Repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Đặt hàng từ giỏ hàng trong một transaction: trừ tồn kho, tạo đơn và các dòng hàng.
+ * <p>
+ * Tồn kho được trừ bằng UPDATE có điều kiện (stock >= số lượng) gửi theo JDBC batch, theo thứ tự product_id tăng dần
+ * để các giao dịch đồng thời luôn khóa hàng theo cùng thứ tự và không deadlock. Chỉ cần một dòng không cập nhật được
+ * là cả giao dịch bị rollback, nên không thể bán vượt tồn kho. Giá và tổng tiền được tính ở server.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CheckoutService {
+
+    private static final String RESERVE_STOCK_SQL = "UPDATE products SET stock = stock - ?, updated_at = ?, version = version + 1 "
+            + "WHERE product_id = ? AND stock >= ?";
+
+    private final OrderRepository orderRepository;
+    private final OrderItemRepository orderItemRepository;
+    private final ProductRepository productRepository;
+    private final UserRepository userRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Transactional
+    public CheckoutResponse checkout(Long userId, CheckoutRequest request) {
+        SortedMap<Long, Long> quantities = mergeCartItems(request);
+        log.info("Đặt hàng cho người dùng {} với {} sản phẩm", userId, quantities.size());
+
+        reserveStock(quantities);
+
+        // Các hàng đã bị khóa bởi UPDATE ở trên nên giá đọc được nhất quán tới khi commit
+        Map<Long, ProductsDTO> products = productRepository.findDtoByIds(quantities.keySet()).stream()
+                .collect(Collectors.toMap(ProductsDTO::getProductId, Function.identity()));
+
+        LocalDateTime now = LocalDateTime.now();
+        BigDecimal totalAmount = BigDecimal.ZERO;
+        for (Map.Entry<Long, Long> entry : quantities.entrySet()) {
+            BigDecimal price = products.get(entry.getKey()).getPrice();
+            totalAmount = totalAmount.add(price.multiply(BigDecimal.valueOf(entry.getValue())));
+        }
+
+        Orders order = orderRepository.save(Orders.builder()
+                .user(userRepository.getReferenceById(userId))
+                .orderDate(now)
+                .status(OrderStatus.PENDING)
+                .totalAmount(totalAmount)
+                .build());
+
+        List<OrderItems> items = new ArrayList<>(quantities.size());
+        for (Map.Entry<Long, Long> entry : quantities.entrySet()) {
+            items.add(OrderItems.builder()
+                    .orderId(order)
+                    .productId(productRepository.getReferenceById(entry.getKey()))
+                    .quantity(entry.getValue())
+                    .price(products.get(entry.getKey()).getPrice())
+                    .createdAt(now)
+                    .updatedAt(now)
+                    .build());
+        }
+        // Id lấy từ sequence nên các INSERT được gom batch khi flush lúc commit
+        orderItemRepository.saveAll(items);
+        eventPublisher.publishEvent(OrderChangedEvent.created(order));
+        eventPublisher.publishEvent(new OrderItemsCreatedEvent(Map.copyOf(quantities), now));
+
+        return toResponse(order, userId, items, products);
+    }
+
+    private SortedMap<Long, Long> mergeCartItems(CheckoutRequest request) {
+        if (request == null || request.getItems() == null || request.getItems().isEmpty()) {
+            throw new InvalidDataException("Giỏ hàng không được để trống");
+        }
+
+        // Gộp các dòng trùng sản phẩm; TreeMap giữ thứ tự product_id tăng dần cho việc khóa hàng
+        SortedMap<Long, Long> quantities = new TreeMap<>();
+        for (CheckoutRequest.CartItem item : request.getItems()) {
+            if (item == null || item.getProductId() == null) {
+                throw new InvalidDataException("ID sản phẩm không được để trống");
+            }
+            if (item.getQuantity() == null || item.getQuantity() <= 0) {
+                throw new InvalidDataException("Số lượng phải lớn hơn 0");
+            }
+            quantities.merge(item.getProductId(), item.getQuantity(), Math::addExact);
+        }
+        return quantities;
+    }
+
+    private void reserveStock(SortedMap<Long, Long> quantities) {
+        List<Long> productIds = new ArrayList<>(quantities.keySet());
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+        int[][] results = jdbcTemplate.batchUpdate(RESERVE_STOCK_SQL, productIds, productIds.size(), (ps, productId) -> {
+            long quantity = quantities.get(productId);
+            ps.setLong(1, quantity);
+            ps.setTimestamp(2, now);
+            ps.setLong(3, productId);
+            ps.setLong(4, quantity);
+        });
+
+        int[] counts = results.length > 0 ? results[0] : new int[0];
+        for (int i = 0; i < productIds.size(); i++) {
+            if (i >= counts.length || counts[i] == 0) {
+                // Ném exception để rollback cả các dòng đã trừ trước đó
+                Long productId = productIds.get(i);
+                if (!productRepository.existsById(productId)) {
+                    throw new NotFoundException("Sản phẩm", "id", productId);
+                }
+                throw new InsufficientStockException(productId, quantities.get(productId));
+            }
+        }
+    }
+
+    private CheckoutResponse toResponse(Orders order, Long userId, List<OrderItems> items,
+                                        Map<Long, ProductsDTO> products) {
+        List<CheckoutResponse.Line> lines = items.stream()
+                .map(item -> {
+                    ProductsDTO product = products.get(item.getProductId().getProductId());
+                    return new CheckoutResponse.Line(
+                            item.getOrder_item_id(),
+                            product.getProductId(),
+                            product.getProductName(),
+                            item.getQuantity(),
+                            item.getPrice(),
+                            item.getPrice().multiply(BigDecimal.valueOf(item.getQuantity())));
+                })
+                .toList();
+
+        return CheckoutResponse.builder()
+                .orderId(order.getOrderId())
+                .userId(userId)
+                .status(order.getStatus().getValue())
+                .orderDate(order.getOrderDate())
+                .totalAmount(order.getTotalAmount())
+                .items(lines)
+                .build();
+    }
+}
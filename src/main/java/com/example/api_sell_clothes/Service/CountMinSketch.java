@@ -0,0 +1,77 @@
+package com.example.api_sell_clothes.Service;
+
+import java.util.Arrays;
+
+/**
+ * Count-Min sketch cho khóa kiểu long: ước lượng tần suất với bộ nhớ cố định (depth x width bộ đếm).
+ * <p>
+ * Dùng conservative update (chỉ tăng các ô đang bằng giá trị nhỏ nhất) để giảm sai số ước lượng dư,
+ * phù hợp cho việc tìm các phần tử xuất hiện nhiều. Không thread-safe, người gọi tự đồng bộ.
+ */
+class CountMinSketch {
+
+    private final int depth;
+    private final int mask;
+    private final long[][] table;
+    private final long[] seeds;
+
+    CountMinSketch(int depth, int width) {
+        if (depth <= 0 || width <= 0) {
+            throw new IllegalArgumentException("depth và width phải lớn hơn 0");
+        }
+        // Làm tròn width lên lũy thừa của 2 để lấy chỉ số bằng phép AND
+        int roundedWidth = Integer.highestOneBit(width - 1) << 1;
+        if (roundedWidth <= 0) {
+            roundedWidth = 1;
+        }
+        this.depth = depth;
+        this.mask = roundedWidth - 1;
+        this.table = new long[depth][roundedWidth];
+        this.seeds = new long[depth];
+        for (int i = 0; i < depth; i++) {
+            seeds[i] = mix(0x9E3779B97F4A7C15L * (i + 1));
+        }
+    }
+
+    void add(long key, long count) {
+        int[] indexes = new int[depth];
+        long current = Long.MAX_VALUE;
+        for (int i = 0; i < depth; i++) {
+            indexes[i] = index(key, i);
+            current = Math.min(current, table[i][indexes[i]]);
+        }
+        long target = current + count;
+        for (int i = 0; i < depth; i++) {
+            if (table[i][indexes[i]] < target) {
+                table[i][indexes[i]] = target;
+            }
+        }
+    }
+
+    // Luôn lớn hơn hoặc bằng tần suất thật
+    long estimate(long key) {
+        long estimate = Long.MAX_VALUE;
+        for (int i = 0; i < depth; i++) {
+            estimate = Math.min(estimate, table[i][index(key, i)]);
+        }
+        return estimate;
+    }
+
+    void clear() {
+        for (long[] row : table) {
+            Arrays.fill(row, 0L);
+        }
+    }
+
+    private int index(long key, int row) {
+        return (int) (mix(key ^ seeds[row]) & mask);
+    }
+
+    // Hàm trộn bit của SplitMix64
+    private static long mix(long value) {
+        long z = value + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
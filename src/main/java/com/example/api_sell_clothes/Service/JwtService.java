@@ -1,10 +1,14 @@
 package com.example.api_sell_clothes.Service;
 
 import com.example.api_sell_clothes.Entity.Users;
+import com.example.api_sell_clothes.Security.JwtClaimsCache;
+import com.example.api_sell_clothes.Security.JwtKeyRing;
+import com.example.api_sell_clothes.Security.TokenRevocationStore;
+import com.example.api_sell_clothes.Security.TokenVersionRegistry;
+import com.example.api_sell_clothes.Security.UserPrincipal;
 import io.jsonwebtoken.*;
-import io.jsonwebtoken.io.Decoders;
-import io.jsonwebtoken.security.Keys;
 import io.jsonwebtoken.security.SignatureException;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.GrantedAuthority;
@@ -12,7 +16,6 @@ import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.stereotype.Service;
 
-import javax.crypto.SecretKey;
 import java.util.*;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -21,16 +24,30 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class JwtService {
 
-    @Value("${jwt.secret-key}")
-    private String secretKey;
-
     @Value("${jwt.expiration}")
     private long jwtExpiration;
 
     @Value("${jwt.refresh-token.expiration}")
     private long refreshExpiration;
 
+    @Value("${jwt.stateless.enabled:false}")
+    private boolean statelessAuthentication;
+
     private final UserDetailsServiceImpl userDetailsService;
+    private final JwtClaimsCache claimsCache;
+    private final TokenVersionRegistry tokenVersionRegistry;
+    private final JwtKeyRing keyRing;
+    private final TokenRevocationStore revocationStore;
+
+    // Parser bất biến, thread-safe; khóa được tra theo "kid" qua keyRing nên xoay khóa không cần dựng lại
+    private JwtParser jwtParser;
+
+    @PostConstruct
+    void initParser() {
+        jwtParser = Jwts.parser()
+                .keyLocator(keyRing)
+                .build();
+    }
 
     public String extractUsername(String token) {
         return extractClaim(token, Claims::getSubject);
@@ -56,85 +73,162 @@ public class JwtService {
     }
 
     public String generateToken(Map<String, Object> extraClaims, Users user) {
-        return buildToken(extraClaims, user, jwtExpiration);
+        return buildToken(extraClaims, UserPrincipal.from(user), jwtExpiration);
     }
 
     public String generateRefreshToken(Users user) {
-        return buildToken(new HashMap<>(), user, refreshExpiration);
+        return buildToken(new HashMap<>(), UserPrincipal.from(user), refreshExpiration);
     }
 
-    private String buildToken(Map<String, Object> extraClaims, Users user, long expiration) {
+    /**
+     * Ký token từ principal đã xác thực (không cần tải lại entity Users)
+     */
+    public String generateToken(UserPrincipal principal) {
+        return buildToken(new HashMap<>(), principal, jwtExpiration);
+    }
+
+    public String generateRefreshToken(UserPrincipal principal) {
+        return buildToken(new HashMap<>(), principal, refreshExpiration);
+    }
+
+    private String buildToken(Map<String, Object> extraClaims, UserPrincipal principal, long expiration) {
         // Add roles to claims
-        List<String> roles = user.getRoles().stream()
-                .map(role -> "ROLE_" + role.getRoleName())
+        List<String> roles = principal.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
                 .collect(Collectors.toList());
         extraClaims.put("roles", roles);
 
         // Add user details to claims
-        extraClaims.put("userId", user.getUserId());
-        extraClaims.put("email", user.getEmail());
-        extraClaims.put("fullName", user.getFullName());
+        extraClaims.put("userId", principal.getUserId());
+        extraClaims.put("email", principal.getEmail());
+        extraClaims.put("fullName", principal.getFullName());
+        extraClaims.put("ver", principal.getTokenVersion());
 
+        JwtKeyRing.SigningKey signingKey = keyRing.signingKey();
+        long now = System.currentTimeMillis();
         return Jwts.builder()
-                .setClaims(extraClaims)
-                .setSubject(user.getUsername())
-                .setIssuedAt(new Date(System.currentTimeMillis()))
-                .setExpiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSignInKey(), SignatureAlgorithm.HS256)
+                .header().keyId(signingKey.kid()).and()
+                .id(UUID.randomUUID().toString())
+                .claims(extraClaims)
+                .subject(principal.getUsername())
+                .issuedAt(new Date(now))
+                .expiration(new Date(now + expiration))
+                .signWith(signingKey.key(), Jwts.SIG.HS256)
                 .compact();
     }
 
     public boolean isTokenValid(String token) {
         try {
-            final String username = extractUsername(token);
-            UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+            Claims claims = extractAllClaims(token);
+            UserDetails userDetails = userDetailsService.loadUserByUsername(claims.getSubject());
+            return isTokenValid(claims, userDetails);
+        } catch (JwtException | IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Kiểm tra token dựa trên claims đã parse sẵn, không verify lại chữ ký và không tải lại user
+     */
+    @SuppressWarnings("unchecked")
+    public boolean isTokenValid(Claims claims, UserDetails userDetails) {
+        final String username = claims.getSubject();
 
-            // Verify username matches
-            if (!username.equals(userDetails.getUsername())) {
-                return false;
-            }
+        // Verify username matches
+        if (username == null || !username.equals(userDetails.getUsername())) {
+            return false;
+        }
 
-            // Verify token is not expired
-            if (isTokenExpired(token)) {
-                return false;
-            }
+        // Verify token is not expired or revoked
+        if (claims.getExpiration() == null || claims.getExpiration().before(new Date())) {
+            return false;
+        }
+        if (isRevoked(claims)) {
+            return false;
+        }
 
-            // Verify roles match
-            List<String> tokenRoles = extractRoles(token);
-            List<String> userRoles = userDetails.getAuthorities().stream()
-                    .map(GrantedAuthority::getAuthority)
-                    .collect(Collectors.toList());
+        // Verify roles match
+        List<String> tokenRoles = (List<String>) claims.getOrDefault("roles", new ArrayList<>());
+        Set<String> userRoles = userDetails.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .collect(Collectors.toSet());
 
-            return new HashSet<>(tokenRoles).equals(new HashSet<>(userRoles));
+        return new HashSet<>(tokenRoles).equals(userRoles);
+    }
 
-        } catch (JwtException | IllegalArgumentException e) {
+    /**
+     * Kiểm tra token ở chế độ stateless: chỉ dựa vào claims và version token của người dùng (có cache)
+     */
+    public boolean isTokenValidStateless(Claims claims) {
+        if (claims.getSubject() == null) {
             return false;
         }
+        if (claims.getExpiration() == null || claims.getExpiration().before(new Date())) {
+            return false;
+        }
+        if (isRevoked(claims)) {
+            return false;
+        }
+        Long tokenVersion = claims.get("ver", Long.class);
+        return tokenVersionRegistry.isCurrent(
+                claims.get("userId", Long.class),
+                tokenVersion != null ? tokenVersion : 0L);
+    }
+
+    public boolean isStatelessAuthentication() {
+        return statelessAuthentication;
     }
 
+    /**
+     * Thu hồi token theo "jti" cho đến khi token hết hạn
+     */
     public void invalidateToken(String token) {
-        // In a production environment, you might want to:
-        // 1. Add the token to a blacklist
-        // 2. Store it in Redis/database with expiration
-        // 3. Implement token revocation
-        System.out.println("Token đã bị vô hiệu hóa / Token invalidated: " + token);
+        if (token != null && token.startsWith("Bearer ")) {
+            token = token.substring(7);
+        }
+
+        Claims claims;
+        try {
+            claims = extractAllClaims(token);
+        } catch (JwtException | IllegalArgumentException e) {
+            // Token đã hết hạn hoặc không hợp lệ thì không cần thu hồi
+            return;
+        }
+
+        revocationStore.revoke(revocationKey(claims), claims.getExpiration().toInstant());
+        claimsCache.invalidate(token);
+    }
+
+    private boolean isRevoked(Claims claims) {
+        return revocationStore.isRevoked(revocationKey(claims));
     }
 
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    // Token phát hành trước khi có "jti" được thu hồi theo hash của (subject, iat, exp)
+    private static String revocationKey(Claims claims) {
+        if (claims.getId() != null) {
+            return claims.getId();
+        }
+        return "legacy:" + JwtClaimsCache.hash(claims.getSubject() + "|"
+                + (claims.getIssuedAt() != null ? claims.getIssuedAt().getTime() : "") + "|"
+                + (claims.getExpiration() != null ? claims.getExpiration().getTime() : ""));
     }
 
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    /**
+     * Parse và verify token một lần; các lần gọi sau với cùng token lấy claims từ cache cho đến khi token hết hạn
+     */
+    public Claims extractAllClaims(String token) {
+        Claims cached = claimsCache.get(token);
+        if (cached != null) {
+            return cached;
+        }
+        Claims claims = parseClaims(token);
+        claimsCache.put(token, claims);
+        return claims;
     }
 
-    private Claims extractAllClaims(String token) {
+    private Claims parseClaims(String token) {
         try {
-            return Jwts.parser()
-                    .setSigningKey(getSignInKey())
-                    .build()
-                    .parseClaimsJws(token)
-                    .getBody();
+            return jwtParser.parseSignedClaims(token).getPayload();
         } catch (ExpiredJwtException e) {
             throw new JwtException("Token JWT đã hết hạn / JWT token has expired", e);
         } catch (UnsupportedJwtException e) {
@@ -148,11 +242,6 @@ public class JwtService {
         }
     }
 
-    private SecretKey getSignInKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(secretKey);
-        return Keys.hmacShaKeyFor(keyBytes);
-    }
-
     public Long extractUserId(String token) {
         try {
             Claims claims = extractAllClaims(token);
@@ -0,0 +1,69 @@
+package com.example.api_sell_clothes.Service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Ghi nhận thời điểm đăng nhập cuối ngoài luồng đăng nhập.
+ * Nhiều lần đăng nhập của cùng một user giữa hai lần flush chỉ giữ lại thời điểm mới nhất,
+ * sau đó tất cả được ghi bằng một batch UPDATE duy nhất.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LastLoginRecorder {
+
+    private static final String UPDATE_LAST_LOGIN_SQL = "UPDATE users SET last_login_at = ? WHERE user_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final ConcurrentHashMap<Long, LocalDateTime> pending = new ConcurrentHashMap<>();
+
+    public void record(Long userId) {
+        if (userId != null) {
+            pending.merge(userId, LocalDateTime.now(), (previous, current) -> current.isAfter(previous) ? current : previous);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${security.last-login.flush-interval:10000}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> batch = new ArrayList<>();
+        for (Long userId : new ArrayList<>(pending.keySet())) {
+            LocalDateTime loginAt = pending.remove(userId);
+            if (loginAt != null) {
+                batch.add(new Object[]{Timestamp.valueOf(loginAt), userId});
+            }
+        }
+
+        try {
+            jdbcTemplate.batchUpdate(UPDATE_LAST_LOGIN_SQL, batch);
+            log.debug("Đã ghi thời điểm đăng nhập cuối cho {} người dùng", batch.size());
+        } catch (RuntimeException e) {
+            // Đưa lại vào hàng đợi, giữ giá trị mới hơn nếu user đã đăng nhập tiếp trong lúc flush
+            for (Object[] row : batch) {
+                LocalDateTime loginAt = ((Timestamp) row[0]).toLocalDateTime();
+                pending.merge((Long) row[1], loginAt, (current, failed) -> current.isAfter(failed) ? current : failed);
+            }
+            log.error("Không thể ghi thời điểm đăng nhập cuối, sẽ thử lại ở lần flush sau", e);
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+}
@@ -3,16 +3,20 @@ package com.example.api_sell_clothes.Service;
 import com.example.api_sell_clothes.DTO.OrderItemsDTO;
 import com.example.api_sell_clothes.Entity.OrderItems;
 import com.example.api_sell_clothes.Entity.Orders;
+import com.example.api_sell_clothes.Event.OrderItemsCreatedEvent;
 import com.example.api_sell_clothes.Exception.Common.NotFoundException;
+import com.example.api_sell_clothes.Exception.Common.ResourceInUseException;
 import com.example.api_sell_clothes.Mapper.OrderItemMapper;
 import com.example.api_sell_clothes.Repository.OrderItemRepository;
 import com.example.api_sell_clothes.Repository.OrderRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Map;
 
 @Slf4j
 @Service
@@ -23,13 +27,13 @@ public class OrderItemService {
     private final OrderItemRepository orderItemRepository;
     private final OrderRepository orderRepository;
     private final OrderItemMapper orderItemMapper;
+    private final ApplicationEventPublisher eventPublisher;
 
     public OrderItemsDTO createOrderItem(Long orderId, OrderItemsDTO orderItemDTO) {
         log.info("Creating order item for order ID {}: {}", orderId, orderItemDTO);
 
-        // Kiểm tra xem đơn hàng có tồn tại hay không
-        Orders order = orderRepository.findById(orderId)
-                .orElseThrow(() -> new NotFoundException("Order", "id", orderId));
+        // Kiểm tra xem đơn hàng có tồn tại và còn được phép thay đổi hay không
+        Orders order = lockModifiableOrder(orderId);
 
         // Chuyển đổi từ DTO sang entity và thiết lập các thuộc tính
         OrderItems orderItem = orderItemMapper.toEntity(orderItemDTO);
@@ -37,11 +41,17 @@ public class OrderItemService {
         orderItem.setCreatedAt(orderItemDTO.getCreatedAt());
         orderItem.setUpdatedAt(orderItemDTO.getUpdatedAt());
 
-        return orderItemMapper.toDto(orderItemRepository.save(orderItem));
+        OrderItems savedOrderItem = orderItemRepository.save(orderItem);
+        if (orderItemDTO.getProductId() != null && orderItemDTO.getQuantity() != null) {
+            eventPublisher.publishEvent(new OrderItemsCreatedEvent(
+                    Map.of(orderItemDTO.getProductId(), orderItemDTO.getQuantity()), order.getOrderDate()));
+        }
+        return orderItemMapper.toDto(savedOrderItem);
     }
 
     public OrderItemsDTO updateOrderItem(Long orderId, Long productId, OrderItemsDTO orderItemDTO) {
         log.info("Updating order item with order ID {} and product ID {}: {}", orderId, productId, orderItemDTO);
+        lockModifiableOrder(orderId);
 
         // Lấy `OrderItems` từ cơ sở dữ liệu và kiểm tra nếu không tìm thấy
         OrderItems existingOrderItem = orderItemRepository.findByOrderIdAndProductId(orderId, productId)
@@ -57,6 +67,7 @@ public class OrderItemService {
 
     public void deleteOrderItem(Long orderId, Long productId) {
         log.info("Deleting order item with order ID {} and product ID {}", orderId, productId);
+        lockModifiableOrder(orderId);
 
         // Lấy `OrderItems` từ cơ sở dữ liệu và kiểm tra nếu không tìm thấy
         OrderItems orderItem = orderItemRepository.findByOrderIdAndProductId(orderId, productId)
@@ -65,6 +76,21 @@ public class OrderItemService {
         orderItemRepository.delete(orderItem);
     }
 
+    /**
+     * Đơn đã giao được cộng vào rollup doanh số và đơn đã hủy không còn xử lý, nên dòng hàng của chúng không được đổi.
+     * Khóa dòng đơn hàng tới cuối transaction: việc chuyển sang delivered phải chờ thay đổi này commit
+     * (rollup đọc được dòng hàng mới), hoặc thay đổi này thấy trạng thái delivered và bị từ chối.
+     */
+    private Orders lockModifiableOrder(Long orderId) {
+        Orders order = orderRepository.findByIdForUpdate(orderId)
+                .orElseThrow(() -> new NotFoundException("Order", "id", orderId));
+        if (order.getStatus().isTerminal()) {
+            throw new ResourceInUseException("Đơn hàng",
+                    "đơn hàng ở trạng thái '" + order.getStatus().getValue() + "' không thể thay đổi sản phẩm");
+        }
+        return order;
+    }
+
     @Transactional(readOnly = true)
     public List<OrderItemsDTO> getOrderItemsByOrderId(Long orderId) {
         log.info("Fetching all order items for order ID {}", orderId);
@@ -1,33 +1,100 @@
 package com.example.api_sell_clothes.Service;
 
+import com.example.api_sell_clothes.Config.RetryOnOptimisticLock;
+import com.example.api_sell_clothes.DTO.CursorPageDTO;
+import com.example.api_sell_clothes.DTO.Order.BulkStatusUpdateRequest;
+import com.example.api_sell_clothes.DTO.Order.BulkStatusUpdateResponse;
+import com.example.api_sell_clothes.DTO.Order.DailyOrderStatistics;
 import com.example.api_sell_clothes.DTO.OrdersDTO;
+import com.example.api_sell_clothes.Entity.OrderStatus;
 import com.example.api_sell_clothes.Entity.Orders;
 import com.example.api_sell_clothes.Entity.Users;
+import com.example.api_sell_clothes.Event.OrderChangedEvent;
 import com.example.api_sell_clothes.Exception.Common.*;
 import com.example.api_sell_clothes.Mapper.OrderMapper;
 import com.example.api_sell_clothes.Repository.OrderRepository;
 import com.example.api_sell_clothes.Repository.UserRepository;
+import com.example.api_sell_clothes.Utils.CsvWriter;
+import com.example.api_sell_clothes.Utils.CursorUtils;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.util.List;
-import java.util.Map;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 @Transactional
 public class OrderService {
+    public enum ExportFormat {
+        NDJSON, CSV
+    }
+
+    private static final int EXPORT_FLUSH_INTERVAL = 500;
+
+    private static final String[] CSV_HEADER = {
+            "orderId", "userId", "username", "orderDate", "status", "totalAmount", "createdAt", "updatedAt", "version"
+    };
+
+    // Chỉ cập nhật các đơn đang ở trạng thái được phép chuyển sang trạng thái đích; subquery khóa các hàng và giữ
+    // trạng thái cũ để RETURNING trả về cùng ngày đặt và tổng tiền (dùng cho số liệu thống kê)
+    private static final String BULK_UPDATE_STATUS_SQL = "UPDATE orders o SET status = ?, updated_at = ?, version = o.version + 1 "
+            + "FROM (SELECT order_id, status FROM orders WHERE order_id = ANY(?) AND status = ANY(?) FOR UPDATE) old "
+            + "WHERE o.order_id = old.order_id "
+            + "RETURNING o.order_id, old.status, o.order_date, o.total_amount";
+
+    private static final String FIND_STATUSES_SQL = "SELECT order_id, status FROM orders WHERE order_id = ANY(?)";
+
     private final OrderRepository orderRepository;
     private final UserRepository userRepository;
     private final OrderMapper orderMapper;
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final OrderStatistics orderStatistics;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+
+    // Giới hạn cứng số đơn trả về dạng danh sách; nhiều hơn thì dùng bản phân trang hoặc xuất dữ liệu
+    @Value("${app.orders.list.max-results:1000}")
+    private int maxListResults;
+
+    @Value("${app.pagination.default-size:20}")
+    private int defaultPageSize;
+
+    @Value("${app.pagination.max-size:100}")
+    private int maxPageSize;
+
+    @Value("${app.orders.statistics.max-days:366}")
+    private int maxStatisticsDays;
 
     public OrdersDTO createOrder(OrdersDTO orderDTO) {
         log.info("Tạo đơn hàng mới : {}", orderDTO);
@@ -36,28 +103,46 @@ public class OrderService {
         Users user = userRepository.findById(orderDTO.getUserId())
                 .orElseThrow(() -> new NotFoundException("Người dùng", "id", orderDTO.getUserId()));
 
+        // Không gửi trạng thái thì mặc định là pending
+        OrderStatus status = orderDTO.getStatus() == null || orderDTO.getStatus().isBlank()
+                ? OrderStatus.PENDING
+                : parseOrderStatus(orderDTO.getStatus());
+        // Đơn mới chưa có dòng hàng; tạo thẳng ở trạng thái delivered sẽ cộng vào rollup doanh số một đơn rỗng
+        if (status.isTerminal()) {
+            throw new InvalidDataException(String.format(
+                    "Không thể tạo đơn hàng ở trạng thái '%s'", status.getValue()));
+        }
+
         Orders order = orderMapper.toEntity(orderDTO);
         order.setUser(user);
+        order.setStatus(status);
         order.setOrderDate(LocalDateTime.now());
         order.setCreatedAt(LocalDateTime.now());
         order.setUpdatedAt(LocalDateTime.now());
 
-        if (order.getStatus() == null || order.getStatus().trim().isEmpty()) {
-            order.setStatus("pending");
-        }
-
-        return orderMapper.toDto(orderRepository.save(order));
+        Orders savedOrder = orderRepository.save(order);
+        eventPublisher.publishEvent(OrderChangedEvent.created(savedOrder));
+        return orderMapper.toDto(savedOrder);
     }
 
+    /**
+     * Ghi đè tổng tiền và trạng thái bằng giá trị client gửi lên, nên bắt buộc có version đã đọc và không retry
+     */
     public OrdersDTO updateOrder(Long id, OrdersDTO orderDTO) {
         log.info("Cập nhật đơn hàng : {}", orderDTO);
 
+        if (orderDTO.getVersion() == null) {
+            throw new InvalidDataException("Thiếu version của đơn hàng, vui lòng tải lại đơn hàng trước khi cập nhật");
+        }
+
         Orders existingOrder = orderRepository.findById(id)
                 .orElseThrow(() -> new NotFoundException("Đơn hàng", "id", id));
+        checkVersion(existingOrder, orderDTO.getVersion());
 
         validateOrderData(orderDTO);
-        validateOrderStatus(orderDTO.getStatus());
-        validateStatusTransition(existingOrder.getStatus(), orderDTO.getStatus());
+        OrderStatus newStatus = parseOrderStatus(orderDTO.getStatus());
+        validateStatusTransition(existingOrder.getStatus(), newStatus);
+        OrderChangedEvent.Snapshot before = OrderChangedEvent.Snapshot.of(existingOrder);
 
         // Giữ nguyên một số thông tin quan trọng
         LocalDateTime createdAt = existingOrder.getCreatedAt();
@@ -65,10 +150,12 @@ public class OrderService {
 
         // Cập nhật thông tin đơn hàng
         existingOrder.setTotalAmount(orderDTO.getTotalAmount());
-        existingOrder.setStatus(orderDTO.getStatus());
+        existingOrder.setStatus(newStatus);
         existingOrder.setUpdatedAt(LocalDateTime.now());
 
-        return orderMapper.toDto(orderRepository.save(existingOrder));
+        Orders savedOrder = orderRepository.save(existingOrder);
+        eventPublisher.publishEvent(OrderChangedEvent.updated(before, savedOrder));
+        return orderMapper.toDto(savedOrder);
     }
 
     public void deleteOrder(Long id) {
@@ -81,7 +168,9 @@ public class OrderService {
             throw new ResourceInUseException("Đơn hàng", "không thể xóa đơn hàng đã được xử lý");
         }
 
+        OrderChangedEvent.Snapshot before = OrderChangedEvent.Snapshot.of(order);
         orderRepository.delete(order);
+        eventPublisher.publishEvent(OrderChangedEvent.deleted(id, before));
     }
 
     @Transactional(readOnly = true)
@@ -108,19 +197,99 @@ public class OrderService {
         return orderRepository.findByUserUserId(userId, pageable).map(orderMapper::toDto);
     }
 
-    public OrdersDTO updateOrderStatus(Long id, String status) {
+    @RetryOnOptimisticLock
+    public OrdersDTO updateOrderStatus(Long id, String status, Long expectedVersion) {
         log.info("Cập nhật trạng thái đơn hàng {} thành {}", id, status);
 
         Orders order = orderRepository.findById(id)
                 .orElseThrow(() -> new NotFoundException("Đơn hàng", "id", id));
+        checkVersion(order, expectedVersion);
 
-        validateOrderStatus(status);
-        validateStatusTransition(order.getStatus(), status);
+        OrderStatus newStatus = parseOrderStatus(status);
+        validateStatusTransition(order.getStatus(), newStatus);
+        OrderChangedEvent.Snapshot before = OrderChangedEvent.Snapshot.of(order);
 
-        order.setStatus(status);
+        order.setStatus(newStatus);
         order.setUpdatedAt(LocalDateTime.now());
 
-        return orderMapper.toDto(orderRepository.save(order));
+        Orders savedOrder = orderRepository.save(order);
+        eventPublisher.publishEvent(OrderChangedEvent.updated(before, savedOrder));
+        return orderMapper.toDto(savedOrder);
+    }
+
+    /**
+     * Chuyển trạng thái nhiều đơn hàng bằng một câu UPDATE có điều kiện (status thuộc các trạng thái được phép
+     * chuyển sang trạng thái đích); chỉ các đơn không cập nhật được mới được đọc lại để báo lý do.
+     */
+    public BulkStatusUpdateResponse bulkUpdateOrderStatus(BulkStatusUpdateRequest request) {
+        if (request == null || request.getOrderIds() == null || request.getOrderIds().isEmpty()) {
+            throw new InvalidDataException("Danh sách đơn hàng không được để trống");
+        }
+        OrderStatus target = parseOrderStatus(request.getStatus());
+        Set<OrderStatus> predecessors = target.getPredecessors();
+        if (predecessors.isEmpty()) {
+            throw new InvalidStatusTransitionException(
+                    String.format("Không có trạng thái nào được phép chuyển sang '%s'", target.getValue()));
+        }
+        Short[] predecessorCodes = predecessors.stream().map(OrderStatus::getCode).toArray(Short[]::new);
+
+        // Bỏ id trùng, giữ thứ tự yêu cầu
+        Set<Long> requestedIds = new LinkedHashSet<>();
+        for (Long orderId : request.getOrderIds()) {
+            if (orderId == null) {
+                throw new InvalidDataException("ID đơn hàng không được để trống");
+            }
+            requestedIds.add(orderId);
+        }
+        log.info("Cập nhật trạng thái {} đơn hàng thành {}", requestedIds.size(), target);
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        Set<Long> updatedIds = new HashSet<>();
+        jdbcTemplate.query(BULK_UPDATE_STATUS_SQL, ps -> {
+            ps.setShort(1, target.getCode());
+            ps.setTimestamp(2, now);
+            ps.setArray(3, longArray(ps.getConnection(), requestedIds));
+            ps.setArray(4, ps.getConnection().createArrayOf("int2", predecessorCodes));
+        }, rs -> {
+            long orderId = rs.getLong(1);
+            Timestamp orderDate = rs.getTimestamp(3);
+            BigDecimal totalAmount = rs.getBigDecimal(4);
+            LocalDateTime orderDateTime = orderDate != null ? orderDate.toLocalDateTime() : null;
+            updatedIds.add(orderId);
+            eventPublisher.publishEvent(new OrderChangedEvent(orderId,
+                    new OrderChangedEvent.Snapshot(OrderStatus.fromCode(rs.getShort(2)), orderDateTime, totalAmount),
+                    new OrderChangedEvent.Snapshot(target, orderDateTime, totalAmount)));
+        });
+
+        List<Long> rejectedIds = requestedIds.stream().filter(id -> !updatedIds.contains(id)).toList();
+        Map<Long, String> currentStatuses = new HashMap<>();
+        if (!rejectedIds.isEmpty()) {
+            jdbcTemplate.query(FIND_STATUSES_SQL,
+                    ps -> ps.setArray(1, longArray(ps.getConnection(), rejectedIds)),
+                    rs -> {
+                        currentStatuses.put(rs.getLong(1), OrderStatus.fromCode(rs.getShort(2)).getValue());
+                    });
+        }
+
+        List<BulkStatusUpdateResponse.Result> results = new ArrayList<>(requestedIds.size());
+        for (Long orderId : requestedIds) {
+            if (updatedIds.contains(orderId)) {
+                results.add(new BulkStatusUpdateResponse.Result(orderId, BulkStatusUpdateResponse.Outcome.UPDATED, null));
+            } else if (currentStatuses.containsKey(orderId)) {
+                results.add(new BulkStatusUpdateResponse.Result(orderId,
+                        BulkStatusUpdateResponse.Outcome.INVALID_TRANSITION, currentStatuses.get(orderId)));
+            } else {
+                results.add(new BulkStatusUpdateResponse.Result(orderId, BulkStatusUpdateResponse.Outcome.NOT_FOUND, null));
+            }
+        }
+
+        return BulkStatusUpdateResponse.builder()
+                .status(target.getValue())
+                .requested(requestedIds.size())
+                .updated(updatedIds.size())
+                .failed(requestedIds.size() - updatedIds.size())
+                .results(results)
+                .build();
     }
 
     @Transactional(readOnly = true)
@@ -132,29 +301,108 @@ public class OrderService {
             Pageable pageable
     ) {
         log.info("Tìm kiếm đơn hàng với các filter");
-        return orderRepository.findOrdersWithFilters(userId, status, startDate, endDate, pageable)
+        OrderStatus orderStatus = status == null || status.isBlank() ? null : parseOrderStatus(status);
+        return orderRepository.findOrdersWithFilters(userId, orderStatus, startDate, endDate, withSearchSort(pageable))
                 .map(orderMapper::toDto);
     }
 
+    /**
+     * Tìm kiếm đơn hàng không đếm tổng số (Slice): bỏ được truy vấn COUNT, phù hợp cho cuộn trang/"xem thêm"
+     */
+    @Transactional(readOnly = true)
+    public Slice<OrdersDTO> searchOrdersSlice(
+            Long userId,
+            String status,
+            LocalDateTime startDate,
+            LocalDateTime endDate,
+            Pageable pageable
+    ) {
+        log.info("Tìm kiếm đơn hàng (không đếm tổng) với các filter");
+        OrderStatus orderStatus = status == null || status.isBlank() ? null : parseOrderStatus(status);
+        return orderRepository.findOrdersSliceWithFilters(userId, orderStatus, startDate, endDate, withSearchSort(pageable))
+                .map(orderMapper::toDto);
+    }
+
+    // Mặc định sắp xếp đơn mới nhất trước, khớp thứ tự của các index (..., order_date)
+    private Pageable withSearchSort(Pageable pageable) {
+        if (pageable.getSort().isSorted()) {
+            return pageable;
+        }
+        return PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(),
+                Sort.by(Sort.Direction.DESC, "orderDate", "orderId"));
+    }
+
     @Transactional(readOnly = true)
     public List<OrdersDTO> getOrdersByDateRange(LocalDateTime startDate, LocalDateTime endDate) {
         log.info("Lấy đơn hàng trong khoảng thời gian từ {} đến {}", startDate, endDate);
-        return orderMapper.toDto(orderRepository.findByOrderDateBetween(startDate, endDate));
+        validateDateRange(startDate, endDate);
+        return orderMapper.toDto(requireWithinLimit(orderRepository.findLimitedByOrderDateBetween(
+                startDate, endDate, Pageable.ofSize(maxListResults + 1))));
     }
 
     @Transactional(readOnly = true)
     public List<OrdersDTO> getOrdersByAmountRange(BigDecimal minAmount, BigDecimal maxAmount) {
         log.info("Lấy đơn hàng trong khoảng giá từ {} đến {}", minAmount, maxAmount);
-        return orderMapper.toDto(orderRepository.findByTotalAmountBetween(minAmount, maxAmount));
+        validateAmountRange(minAmount, maxAmount);
+        return orderMapper.toDto(requireWithinLimit(orderRepository.findLimitedByTotalAmountBetween(
+                minAmount, maxAmount, Pageable.ofSize(maxListResults + 1))));
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPageDTO<OrdersDTO> getOrdersByDateRangePage(LocalDateTime startDate, LocalDateTime endDate,
+                                                             String cursor, Integer size) {
+        validateDateRange(startDate, endDate);
+        long afterId = CursorUtils.decodeId(cursor);
+        int pageSize = resolvePageSize(size);
+        log.info("Lấy đơn hàng từ {} đến {} sau id {} (tối đa {})", startDate, endDate, afterId, pageSize);
+        return toCursorPage(orderRepository.findPageByOrderDateBetween(
+                startDate, endDate, afterId, PageRequest.of(0, pageSize + 1)), pageSize);
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPageDTO<OrdersDTO> getOrdersByAmountRangePage(BigDecimal minAmount, BigDecimal maxAmount,
+                                                               String cursor, Integer size) {
+        validateAmountRange(minAmount, maxAmount);
+        long afterId = CursorUtils.decodeId(cursor);
+        int pageSize = resolvePageSize(size);
+        log.info("Lấy đơn hàng giá từ {} đến {} sau id {} (tối đa {})", minAmount, maxAmount, afterId, pageSize);
+        return toCursorPage(orderRepository.findPageByTotalAmountBetween(
+                minAmount, maxAmount, afterId, PageRequest.of(0, pageSize + 1)), pageSize);
+    }
+
+    /**
+     * Xuất đơn hàng trong khoảng thời gian dạng NDJSON hoặc CSV, đọc qua Stream nên bộ nhớ không phụ thuộc số đơn
+     */
+    @Transactional(readOnly = true)
+    public long exportOrdersByDateRange(LocalDateTime startDate, LocalDateTime endDate,
+                                        ExportFormat format, OutputStream out) throws IOException {
+        validateDateRange(startDate, endDate);
+        log.info("Xuất đơn hàng từ {} đến {} dạng {}", startDate, endDate, format);
+        try (Stream<Orders> orders = orderRepository.streamByOrderDateBetween(startDate, endDate)) {
+            return writeOrders(orders, format, out);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public long exportOrdersByAmountRange(BigDecimal minAmount, BigDecimal maxAmount,
+                                          ExportFormat format, OutputStream out) throws IOException {
+        validateAmountRange(minAmount, maxAmount);
+        log.info("Xuất đơn hàng giá từ {} đến {} dạng {}", minAmount, maxAmount, format);
+        try (Stream<Orders> orders = orderRepository.streamByTotalAmountBetween(minAmount, maxAmount)) {
+            return writeOrders(orders, format, out);
+        }
     }
 
     @Transactional(readOnly = true)
     public Map<String, Long> getOrderStatistics() {
         log.info("Lấy thống kê đơn hàng theo trạng thái");
+        if (orderStatistics.isReady()) {
+            return orderStatistics.countByStatus();
+        }
         List<Object[]> statistics = orderRepository.countOrdersByStatus();
         return statistics.stream()
                 .collect(Collectors.toMap(
-                        row -> (String) row[1],
+                        row -> ((OrderStatus) row[1]).getValue(),
                         row -> (Long) row[0]
                 ));
     }
@@ -162,15 +410,36 @@ public class OrderService {
     @Transactional(readOnly = true)
     public BigDecimal getTotalAmountByStatus(String status) {
         log.info("Tính tổng giá trị đơn hàng theo trạng thái: {}", status);
-        validateOrderStatus(status);
-        return orderRepository.calculateTotalAmountByStatus(status);
+        OrderStatus orderStatus = parseOrderStatus(status);
+        if (orderStatistics.isReady()) {
+            return orderStatistics.totalAmountByStatus(orderStatus);
+        }
+        return orderRepository.calculateTotalAmountByStatus(orderStatus);
+    }
+
+    @Transactional(readOnly = true)
+    public List<DailyOrderStatistics> getDailyStatistics(LocalDate from, LocalDate to) {
+        log.info("Lấy thống kê đơn hàng theo ngày từ {} đến {}", from, to);
+        if (from == null || to == null || from.isAfter(to)) {
+            throw new InvalidDataException("Khoảng thời gian không hợp lệ");
+        }
+        if (ChronoUnit.DAYS.between(from, to) >= maxStatisticsDays) {
+            throw new InvalidDataException("Khoảng thời gian tối đa " + maxStatisticsDays + " ngày");
+        }
+        if (!orderStatistics.isReady()) {
+            throw new ServiceUnavailableException("Số liệu đơn hàng đang được khởi tạo, vui lòng thử lại");
+        }
+        return orderStatistics.daily(from, to);
     }
 
     @Transactional(readOnly = true)
     public List<OrdersDTO> getTopOrdersByAmount(LocalDateTime startDate, LocalDateTime endDate, String status, int limit) {
         log.info("Lấy top {} đơn hàng có giá trị cao nhất", limit);
+        if (limit <= 0) {
+            throw new InvalidDataException("Số lượng đơn hàng phải lớn hơn 0");
+        }
         return orderMapper.toDto(orderRepository.findTopOrdersByAmountInPeriod(
-                startDate, endDate, status, Pageable.ofSize(limit)));
+                startDate, endDate, parseOrderStatus(status), Pageable.ofSize(Math.min(limit, maxListResults))));
     }
 
     // Các phương thức hỗ trợ
@@ -186,39 +455,132 @@ public class OrderService {
         }
     }
 
-    private void validateOrderStatus(String status) {
+    private OrderStatus parseOrderStatus(String status) {
         if (status == null || status.trim().isEmpty()) {
             throw new InvalidDataException("Trạng thái đơn hàng không được để trống");
         }
 
-        List<String> validStatuses = List.of("pending", "processing", "shipped", "delivered", "cancelled");
-        if (!validStatuses.contains(status.toLowerCase())) {
+        OrderStatus orderStatus = OrderStatus.fromValue(status);
+        if (orderStatus == null) {
             throw new InvalidDataException("Trạng thái đơn hàng không hợp lệ");
         }
+        return orderStatus;
     }
 
-    private void validateStatusTransition(String currentStatus, String newStatus) {
-        if ("delivered".equalsIgnoreCase(currentStatus) || "cancelled".equalsIgnoreCase(currentStatus)) {
+    private void validateStatusTransition(OrderStatus currentStatus, OrderStatus newStatus) {
+        if (currentStatus.isTerminal()) {
             throw new InvalidStatusTransitionException("Không thể thay đổi trạng thái của đơn hàng đã hoàn thành hoặc đã hủy");
         }
 
         // Kiểm tra luồng trạng thái hợp lệ
-        Map<String, List<String>> validTransitions = Map.of(
-                "pending", List.of("processing", "cancelled"),
-                "processing", List.of("shipped", "cancelled"),
-                "shipped", List.of("delivered", "cancelled")
-        );
-
-        List<String> allowedTransitions = validTransitions.get(currentStatus.toLowerCase());
-        if (allowedTransitions == null || !allowedTransitions.contains(newStatus.toLowerCase())) {
+        if (!currentStatus.canTransitionTo(newStatus)) {
             throw new InvalidStatusTransitionException(
-                    String.format("Không thể chuyển trạng thái từ '%s' sang '%s'", currentStatus, newStatus)
+                    String.format("Không thể chuyển trạng thái từ '%s' sang '%s'", currentStatus.getValue(), newStatus.getValue())
             );
         }
     }
 
+    private static Array longArray(Connection connection, Collection<Long> ids) throws SQLException {
+        return connection.createArrayOf("bigint", ids.toArray());
+    }
+
+    private long writeOrders(Stream<Orders> orders, ExportFormat format, OutputStream out) throws IOException {
+        long count = 0;
+        if (format == ExportFormat.CSV) {
+            Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+            CsvWriter csv = new CsvWriter(writer);
+            csv.writeRecord((Object[]) CSV_HEADER);
+            for (Orders order : (Iterable<Orders>) orders::iterator) {
+                OrdersDTO dto = orderMapper.toDto(order);
+                csv.writeRecord(dto.getOrder_item_id(), dto.getUserId(), dto.getUsername(), dto.getOrderDate(),
+                        dto.getStatus(), dto.getTotalAmount(), dto.getCreatedAt(), dto.getUpdatedAt(), dto.getVersion());
+                count = afterExportRow(count, csv::flush);
+            }
+            csv.flush();
+        } else {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                generator.setPrettyPrinter(new MinimalPrettyPrinter(""));
+                for (Orders order : (Iterable<Orders>) orders::iterator) {
+                    objectMapper.writeValue(generator, orderMapper.toDto(order));
+                    generator.writeRaw('\n');
+                    count = afterExportRow(count, generator::flush);
+                }
+                generator.flush();
+            }
+        }
+        log.info("Đã xuất {} đơn hàng", count);
+        return count;
+    }
+
+    private interface IOAction {
+        void run() throws IOException;
+    }
+
+    // Định kỳ đẩy dữ liệu ra client và giải phóng persistence context (đơn hàng và người dùng đã đọc)
+    private long afterExportRow(long count, IOAction flush) throws IOException {
+        long next = count + 1;
+        if (next % EXPORT_FLUSH_INTERVAL == 0) {
+            flush.run();
+            entityManager.clear();
+        }
+        return next;
+    }
+
+    private List<Orders> requireWithinLimit(List<Orders> orders) {
+        if (orders.size() > maxListResults) {
+            throw new InvalidDataException(String.format(
+                    "Kết quả vượt quá %d đơn hàng, vui lòng thu hẹp điều kiện hoặc dùng API phân trang/xuất dữ liệu",
+                    maxListResults));
+        }
+        return orders;
+    }
+
+    private CursorPageDTO<OrdersDTO> toCursorPage(List<Orders> orders, int pageSize) {
+        // Lấy dư một bản ghi để biết còn trang tiếp theo hay không
+        boolean hasNext = orders.size() > pageSize;
+        if (hasNext) {
+            orders = orders.subList(0, pageSize);
+        }
+        String nextCursor = hasNext ? CursorUtils.encodeId(orders.get(orders.size() - 1).getOrderId()) : null;
+        return CursorPageDTO.<OrdersDTO>builder()
+                .items(orderMapper.toDto(orders))
+                .nextCursor(nextCursor)
+                .hasNext(hasNext)
+                .size(pageSize)
+                .build();
+    }
+
+    private int resolvePageSize(Integer size) {
+        if (size == null) {
+            return defaultPageSize;
+        }
+        if (size <= 0) {
+            throw new InvalidDataException("Kích thước trang phải lớn hơn 0");
+        }
+        return Math.min(size, maxPageSize);
+    }
+
+    private void validateDateRange(LocalDateTime startDate, LocalDateTime endDate) {
+        if (startDate == null || endDate == null || startDate.isAfter(endDate)) {
+            throw new InvalidDataException("Khoảng thời gian không hợp lệ");
+        }
+    }
+
+    private void validateAmountRange(BigDecimal minAmount, BigDecimal maxAmount) {
+        if (minAmount == null || maxAmount == null || minAmount.compareTo(maxAmount) > 0) {
+            throw new InvalidDataException("Khoảng giá không hợp lệ");
+        }
+    }
+
+    // Client gửi version đã đọc: nếu khác thì đơn đã bị sửa, không ghi đè và không retry
+    private void checkVersion(Orders order, Long expectedVersion) {
+        if (expectedVersion != null && !expectedVersion.equals(order.getVersion())) {
+            throw new VersionConflictException("Đơn hàng", order.getOrderId(), expectedVersion, order.getVersion());
+        }
+    }
+
     private boolean canDeleteOrder(Orders order) {
-        return "pending".equalsIgnoreCase(order.getStatus()) ||
-                "cancelled".equalsIgnoreCase(order.getStatus());
+        return order.getStatus() == OrderStatus.PENDING || order.getStatus() == OrderStatus.CANCELLED;
     }
 }
\ No newline at end of file
@@ -0,0 +1,342 @@
+package com.example.api_sell_clothes.Service;
+
+import com.example.api_sell_clothes.DTO.Order.DailyOrderStatistics;
+import com.example.api_sell_clothes.Entity.OrderStatus;
+import com.example.api_sell_clothes.Event.OrderChangedEvent;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Số lượng và tổng tiền đơn hàng theo trạng thái và theo ngày, giữ trong bộ nhớ để dashboard không phải
+ * GROUP BY toàn bảng orders mỗi lần làm mới.
+ * <p>
+ * Dựng từ DB một lần khi khởi động, sau đó cộng/trừ theo {@link OrderChangedEvent} sau mỗi commit.
+ * <p>
+ * Khi dựng lại, câu GROUP BY chạy trong transaction REPEATABLE READ và ghi lại snapshot của PostgreSQL.
+ * Mỗi thay đổi mang theo id transaction đã commit nó; thay đổi đến trong lúc dựng được giữ lại rồi áp dụng
+ * vào số liệu mới nếu snapshot không nhìn thấy transaction đó, nên không bị mất hay tính hai lần.
+ * <p>
+ * Chỉ thay đổi commit trên node này mới được cộng ngay. Để nhận đơn hàng ghi ở node khác, định kỳ
+ * (app.orders.statistics.check-interval) đọc bộ đếm ghi của bảng orders trong pg_stat_user_tables - chỉ một dòng,
+ * không quét bảng - rồi trừ đi số thay đổi node này đã commit; còn dư nghĩa là có node khác ghi và số liệu được dựng lại.
+ * Ngoài ra vẫn dựng lại toàn bộ theo app.orders.statistics.rebuild-interval để phòng bộ đếm bị tắt hoặc sai lệch.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OrderStatistics {
+
+    // Tổng số dòng insert/update/delete của bảng orders từ mọi kết nối, PostgreSQL cập nhật trễ vài giây
+    private static final String CHANGE_MARKER_SQL = "SELECT n_tup_ins + n_tup_upd + n_tup_del "
+            + "FROM pg_stat_user_tables WHERE relid = 'orders'::regclass";
+
+    private static final String AGGREGATE_SQL = "SELECT status, CAST(order_date AS date) AS order_day, "
+            + "COUNT(*), COALESCE(SUM(total_amount), 0) FROM orders GROUP BY status, CAST(order_date AS date)";
+
+    private static final class Bucket {
+        private final LongAdder count = new LongAdder();
+        private final AtomicReference<BigDecimal> totalAmount = new AtomicReference<>(BigDecimal.ZERO);
+
+        void add(long countDelta, BigDecimal amountDelta) {
+            count.add(countDelta);
+            if (amountDelta != null && amountDelta.signum() != 0) {
+                totalAmount.accumulateAndGet(amountDelta, BigDecimal::add);
+            }
+        }
+    }
+
+    private record DayKey(LocalDate day, OrderStatus status) {
+    }
+
+    private static final class Aggregates {
+        private final Map<OrderStatus, Bucket> byStatus = new EnumMap<>(OrderStatus.class);
+        private final ConcurrentMap<DayKey, Bucket> byDay = new ConcurrentHashMap<>();
+
+        Aggregates() {
+            // Điền sẵn mọi trạng thái nên EnumMap chỉ được đọc sau khi khởi tạo, an toàn giữa các thread
+            for (OrderStatus status : OrderStatus.values()) {
+                byStatus.put(status, new Bucket());
+            }
+        }
+
+        void add(OrderStatus status, LocalDate day, long countDelta, BigDecimal amountDelta) {
+            byStatus.get(status).add(countDelta, amountDelta);
+            if (day != null) {
+                byDay.computeIfAbsent(new DayKey(day, status), key -> new Bucket()).add(countDelta, amountDelta);
+            }
+        }
+    }
+
+    // Thay đổi đã commit cùng id transaction (null nếu không xác định được)
+    private record Committed(OrderChangedEvent event, Long xid) {
+    }
+
+    /**
+     * Snapshot dạng "xmin:xmax:xip,..." của pg_current_snapshot(): transaction đã commit được nhìn thấy
+     * nếu id nhỏ hơn xmin, hoặc nhỏ hơn xmax và không nằm trong danh sách đang chạy
+     */
+    private record Snapshot(long xmin, long xmax, Set<Long> inProgress) {
+        static Snapshot parse(String text) {
+            String[] parts = text.split(":", -1);
+            Set<Long> inProgress = new HashSet<>();
+            if (parts.length > 2 && !parts[2].isEmpty()) {
+                for (String xid : parts[2].split(",")) {
+                    inProgress.add(Long.parseLong(xid));
+                }
+            }
+            return new Snapshot(Long.parseLong(parts[0]), Long.parseLong(parts[1]), inProgress);
+        }
+
+        boolean sees(Long xid) {
+            if (xid == null) {
+                return false;
+            }
+            return xid < xmin || (xid < xmax && !inProgress.contains(xid));
+        }
+    }
+
+    // Khóa tài nguyên gắn với transaction hiện tại: các thay đổi chờ commit
+    private static final Object PENDING_KEY = new Object();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManager entityManager;
+    private final PlatformTransactionManager transactionManager;
+    private final AtomicReference<Aggregates> current = new AtomicReference<>();
+
+    private final Object deltaLock = new Object();
+    // Khác null trong lúc dựng lại: các thay đổi commit trong thời gian đó
+    private List<Committed> rebuildBuffer;
+
+    // Số dòng orders do node này ghi kể từ lần đọc bộ đếm trước (mỗi OrderChangedEvent ứng với một dòng)
+    private final AtomicLong localWrites = new AtomicLong();
+    // Giá trị bộ đếm ở lần đọc trước, -1 nếu chưa đọc được; chỉ truy cập khi giữ khóa của đối tượng
+    private long lastChangeMarker = -1;
+    // Ghi của node này đã đếm nhưng bộ đếm của PostgreSQL chưa phản ánh ở lần đọc trước
+    private long unflushedLocalWrites;
+
+    public boolean isReady() {
+        return current.get() != null;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${app.orders.statistics.rebuild-interval:3600000}",
+            fixedDelayString = "${app.orders.statistics.rebuild-interval:3600000}")
+    public synchronized void rebuild() {
+        synchronized (deltaLock) {
+            rebuildBuffer = new ArrayList<>();
+        }
+        Aggregates aggregates = new Aggregates();
+        try {
+            // Đọc trước snapshot: ghi commit xen giữa chỉ gây thêm một lần dựng lại, không bị bỏ sót
+            lastChangeMarker = readChangeMarker();
+            localWrites.set(0);
+            unflushedLocalWrites = 0;
+
+            TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+            transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+            transactionTemplate.setReadOnly(true);
+            // Snapshot được chốt ở câu lệnh đầu tiên và dùng chung cho câu GROUP BY phía sau
+            Snapshot snapshot = transactionTemplate.execute(status -> {
+                Snapshot taken = Snapshot.parse(jdbcTemplate.queryForObject(
+                        "SELECT pg_current_snapshot()::text", String.class));
+                jdbcTemplate.query(AGGREGATE_SQL, rs -> {
+                    Date day = rs.getDate(2);
+                    aggregates.add(OrderStatus.fromCode(rs.getShort(1)),
+                            day != null ? day.toLocalDate() : null,
+                            rs.getLong(3),
+                            rs.getBigDecimal(4));
+                });
+                return taken;
+            });
+
+            int replayed = 0;
+            synchronized (deltaLock) {
+                for (Committed committed : rebuildBuffer) {
+                    if (!snapshot.sees(committed.xid())) {
+                        apply(aggregates, committed.event());
+                        replayed++;
+                    }
+                }
+                current.set(aggregates);
+                rebuildBuffer = null;
+            }
+            log.info("Đã dựng số liệu đơn hàng: {} nhóm theo ngày, áp dụng lại {} thay đổi",
+                    aggregates.byDay.size(), replayed);
+        } catch (RuntimeException e) {
+            synchronized (deltaLock) {
+                rebuildBuffer = null;
+            }
+            // Lần kiểm tra kế tiếp sẽ dựng lại
+            lastChangeMarker = -1;
+            log.error("Không thể dựng số liệu đơn hàng, giữ số liệu hiện tại", e);
+        }
+    }
+
+    /**
+     * Dựng lại khi bảng orders có thay đổi không đến từ node này, hoặc khi lần dựng trước thất bại
+     */
+    @Scheduled(initialDelayString = "${app.orders.statistics.check-interval:30000}",
+            fixedDelayString = "${app.orders.statistics.check-interval:30000}")
+    public synchronized void rebuildIfChangedElsewhere() {
+        if (!isReady() || lastChangeMarker < 0) {
+            rebuild();
+            return;
+        }
+        try {
+            long marker = readChangeMarker();
+            long previous = lastChangeMarker;
+            long unexplained = marker - previous - localWrites.getAndSet(0);
+            // Bù phần ghi của node này mà lần đọc trước chưa thấy; chỉ giữ một chu kỳ để không che mãi ghi của node khác
+            long remoteWrites = unexplained + unflushedLocalWrites;
+            unflushedLocalWrites = Math.min(0, unexplained);
+            lastChangeMarker = marker;
+
+            // Bộ đếm giảm nghĩa là thống kê đã bị reset
+            if (remoteWrites > 0 || marker < previous) {
+                log.debug("Bảng orders có {} thay đổi từ node khác, dựng lại số liệu", remoteWrites);
+                rebuild();
+            }
+        } catch (RuntimeException e) {
+            log.error("Không thể kiểm tra thay đổi của bảng orders", e);
+        }
+    }
+
+    private long readChangeMarker() {
+        Long marker = jdbcTemplate.queryForObject(CHANGE_MARKER_SQL, Long.class);
+        return marker != null ? marker : 0L;
+    }
+
+    @EventListener
+    public void onOrderChanged(OrderChangedEvent event) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            onCommitted(List.of(event), null);
+            return;
+        }
+        pendingEvents().add(event);
+    }
+
+    private void onCommitted(List<OrderChangedEvent> events, Long xid) {
+        localWrites.addAndGet(events.size());
+        Aggregates aggregates;
+        synchronized (deltaLock) {
+            if (rebuildBuffer != null) {
+                events.forEach(event -> rebuildBuffer.add(new Committed(event, xid)));
+            }
+            aggregates = current.get();
+        }
+        // Chưa dựng xong lần đầu: lần dựng sẽ đọc thay đổi này từ DB hoặc áp dụng lại từ rebuildBuffer
+        if (aggregates != null) {
+            events.forEach(event -> apply(aggregates, event));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<OrderChangedEvent> pendingEvents() {
+        List<OrderChangedEvent> events = (List<OrderChangedEvent>) TransactionSynchronizationManager.getResource(PENDING_KEY);
+        if (events != null) {
+            return events;
+        }
+
+        List<OrderChangedEvent> created = new ArrayList<>();
+        TransactionSynchronizationManager.bindResource(PENDING_KEY, created);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private Long xid;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                // Đẩy thay đổi của Hibernate xuống DB để transaction chắc chắn đã được cấp id
+                entityManager.flush();
+                String value = jdbcTemplate.queryForObject("SELECT pg_current_xact_id_if_assigned()::text", String.class);
+                xid = value != null ? Long.valueOf(value) : null;
+            }
+
+            @Override
+            public void afterCommit() {
+                onCommitted(created, xid);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(PENDING_KEY);
+            }
+        });
+        return created;
+    }
+
+    // Số đơn theo trạng thái, chỉ gồm trạng thái có đơn (giống kết quả GROUP BY)
+    public Map<String, Long> countByStatus() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        requireAggregates().byStatus.forEach((status, bucket) -> {
+            long count = bucket.count.sum();
+            if (count > 0) {
+                counts.put(status.getValue(), count);
+            }
+        });
+        return counts;
+    }
+
+    public BigDecimal totalAmountByStatus(OrderStatus status) {
+        return requireAggregates().byStatus.get(status).totalAmount.get();
+    }
+
+    // Số liệu từng ngày trong khoảng [from, to], bỏ qua ngày/trạng thái không có đơn
+    public List<DailyOrderStatistics> daily(LocalDate from, LocalDate to) {
+        Aggregates aggregates = requireAggregates();
+        List<DailyOrderStatistics> result = new ArrayList<>();
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            for (OrderStatus status : OrderStatus.values()) {
+                Bucket bucket = aggregates.byDay.get(new DayKey(day, status));
+                if (bucket != null && bucket.count.sum() > 0) {
+                    result.add(new DailyOrderStatistics(day, status.getValue(),
+                            bucket.count.sum(), bucket.totalAmount.get()));
+                }
+            }
+        }
+        return result;
+    }
+
+    private static void apply(Aggregates aggregates, OrderChangedEvent event) {
+        apply(aggregates, event.getBefore(), -1);
+        apply(aggregates, event.getAfter(), 1);
+    }
+
+    private static void apply(Aggregates aggregates, OrderChangedEvent.Snapshot snapshot, int sign) {
+        if (snapshot == null || snapshot.status() == null) {
+            return;
+        }
+        BigDecimal amount = snapshot.totalAmount() != null ? snapshot.totalAmount() : BigDecimal.ZERO;
+        aggregates.add(snapshot.status(),
+                snapshot.orderDate() != null ? snapshot.orderDate().toLocalDate() : null,
+                sign,
+                sign < 0 ? amount.negate() : amount);
+    }
+
+    private Aggregates requireAggregates() {
+        Aggregates aggregates = current.get();
+        if (aggregates == null) {
+            throw new IllegalStateException("Số liệu đơn hàng chưa sẵn sàng");
+        }
+        return aggregates;
+    }
+}
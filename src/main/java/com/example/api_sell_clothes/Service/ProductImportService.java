@@ -0,0 +1,357 @@
+package com.example.api_sell_clothes.Service;
+
+import com.example.api_sell_clothes.DTO.Product.ProductImportReport;
+import com.example.api_sell_clothes.DTO.ProductsDTO;
+import com.example.api_sell_clothes.Entity.IdAllocation;
+import com.example.api_sell_clothes.Event.ProductChangedEvent;
+import com.example.api_sell_clothes.Exception.Common.InvalidDataException;
+import com.example.api_sell_clothes.Repository.CategoryRepository;
+import com.example.api_sell_clothes.Repository.ProductRepository;
+import com.example.api_sell_clothes.Utils.CsvReader;
+import com.example.api_sell_clothes.Utils.ProductValidationUtils;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Nhập sản phẩm hàng loạt từ CSV hoặc NDJSON.
+ * <p>
+ * Dữ liệu được đọc tuần tự và xử lý theo từng lô (mặc định 1000 dòng), mỗi lô một transaction:
+ * một truy vấn kiểm tra trùng tên, một truy vấn kiểm tra danh mục, sau đó INSERT bằng JDBC batch.
+ * Dòng lỗi không làm hỏng cả lô mà được ghi vào báo cáo.
+ */
+@Slf4j
+@Service
+public class ProductImportService {
+
+    public enum ImportFormat {
+        CSV, NDJSON
+    }
+
+    private static final String INSERT_PRODUCT_SQL = "INSERT INTO products "
+            + "(product_id, product_name, product_description, price, stock, category_id, image_url, created_at, updated_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    // Mỗi giá trị nextval sở hữu một khối IdAllocation.ALLOCATION_SIZE id, giống cách Hibernate (pooled-lo) cấp id
+    private static final String ALLOCATE_PRODUCT_IDS_SQL =
+            "SELECT nextval('products_seq') FROM generate_series(1, ?)";
+
+    private static final List<String> CSV_COLUMNS = List.of(
+            "productName", "productDescription", "price", "stock", "categoryId", "imageUrl");
+
+    private record ImportRow(long line, ProductsDTO product, String error) {
+    }
+
+    private final ProductRepository productRepository;
+    private final CategoryRepository categoryRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.products.import.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${app.products.import.max-errors:1000}")
+    private int maxReportedErrors;
+
+    public ProductImportService(ProductRepository productRepository,
+                                CategoryRepository categoryRepository,
+                                JdbcTemplate jdbcTemplate,
+                                ObjectMapper objectMapper,
+                                ApplicationEventPublisher eventPublisher,
+                                PlatformTransactionManager transactionManager) {
+        this.productRepository = productRepository;
+        this.categoryRepository = categoryRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public ProductImportReport importProducts(InputStream input, ImportFormat format) throws IOException {
+        log.info("Bắt đầu nhập sản phẩm hàng loạt, định dạng {}", format);
+        ProductImportReport report = ProductImportReport.builder().build();
+        List<ImportRow> chunk = new ArrayList<>(chunkSize);
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            Iterator<ImportRow> rows = format == ImportFormat.CSV ? csvRows(reader) : ndjsonRows(reader);
+            while (rows.hasNext()) {
+                chunk.add(rows.next());
+                if (chunk.size() >= chunkSize) {
+                    processChunk(chunk, report);
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                processChunk(chunk, report);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        log.info("Nhập sản phẩm xong: {} dòng, {} thành công, {} lỗi",
+                report.getTotalRows(), report.getImported(), report.getFailed());
+        return report;
+    }
+
+    private void processChunk(List<ImportRow> chunk, ProductImportReport report) {
+        report.setTotalRows(report.getTotalRows() + chunk.size());
+
+        // Kiểm tra từng dòng độc lập trước khi chạm DB
+        List<ImportRow> candidates = new ArrayList<>(chunk.size());
+        for (ImportRow row : chunk) {
+            if (row.error() != null) {
+                reportError(report, row, row.error());
+                continue;
+            }
+            try {
+                ProductValidationUtils.validateProductData(row.product());
+                row.product().setProductName(row.product().getProductName().trim());
+                candidates.add(row);
+            } catch (InvalidDataException e) {
+                reportError(report, row, e.getMessage());
+            }
+        }
+        if (candidates.isEmpty()) {
+            return;
+        }
+
+        // Lỗi của từng dòng chỉ được ghi vào báo cáo khi transaction của lô commit thành công
+        List<Map.Entry<ImportRow, String>> rejected = new ArrayList<>();
+        try {
+            int imported = transactionTemplate.execute(status -> insertChunk(candidates, rejected));
+            report.setImported(report.getImported() + imported);
+            rejected.forEach(entry -> reportError(report, entry.getKey(), entry.getValue()));
+        } catch (RuntimeException e) {
+            log.error("Không thể ghi lô {} sản phẩm bắt đầu từ dòng {}", candidates.size(), candidates.get(0).line(), e);
+            candidates.forEach(row -> reportError(report, row, "Lỗi khi ghi dữ liệu, lô đã bị hủy"));
+        }
+    }
+
+    private int insertChunk(List<ImportRow> candidates, List<Map.Entry<ImportRow, String>> rejected) {
+        Set<String> names = new HashSet<>();
+        Set<Long> categoryIds = new HashSet<>();
+        candidates.forEach(row -> {
+            names.add(row.product().getProductName());
+            categoryIds.add(row.product().getCategoryId());
+        });
+
+        // Một truy vấn cho mỗi loại kiểm tra trên cả lô
+        Set<String> existingNames = new HashSet<>(productRepository.findExistingNames(names));
+        Set<Long> existingCategories = new HashSet<>(categoryRepository.findExistingIds(categoryIds));
+
+        List<ImportRow> accepted = new ArrayList<>(candidates.size());
+        Set<String> namesInChunk = new HashSet<>();
+        for (ImportRow row : candidates) {
+            ProductsDTO product = row.product();
+            if (existingNames.contains(product.getProductName())) {
+                rejected.add(Map.entry(row, "Sản phẩm với tên '" + product.getProductName() + "' đã tồn tại"));
+            } else if (!namesInChunk.add(product.getProductName())) {
+                rejected.add(Map.entry(row, "Tên sản phẩm bị trùng trong file nhập"));
+            } else if (!existingCategories.contains(product.getCategoryId())) {
+                rejected.add(Map.entry(row, "Không tìm thấy danh mục với id: " + product.getCategoryId()));
+            } else {
+                accepted.add(row);
+            }
+        }
+        if (accepted.isEmpty()) {
+            return 0;
+        }
+
+        List<Long> productIds = insertBatch(accepted);
+        for (int i = 0; i < accepted.size(); i++) {
+            ProductsDTO product = accepted.get(i).product();
+            eventPublisher.publishEvent(new ProductChangedEvent(productIds.get(i),
+                    product.getProductName(), product.getProductDescription(), false));
+        }
+        return accepted.size();
+    }
+
+    private List<Long> insertBatch(List<ImportRow> rows) {
+        List<Long> productIds = allocateProductIds(rows.size());
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+        jdbcTemplate.batchUpdate(INSERT_PRODUCT_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ProductsDTO product = rows.get(i).product();
+                ps.setLong(1, productIds.get(i));
+                ps.setString(2, product.getProductName());
+                ps.setString(3, product.getProductDescription());
+                ps.setBigDecimal(4, product.getPrice());
+                ps.setLong(5, product.getStock());
+                ps.setLong(6, product.getCategoryId());
+                if (product.getImageUrl() != null) {
+                    ps.setString(7, product.getImageUrl());
+                } else {
+                    ps.setNull(7, Types.VARCHAR);
+                }
+                ps.setTimestamp(8, now);
+                ps.setTimestamp(9, now);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return rows.size();
+            }
+        });
+        return productIds;
+    }
+
+    private List<Long> allocateProductIds(int count) {
+        int blocks = (count + IdAllocation.ALLOCATION_SIZE - 1) / IdAllocation.ALLOCATION_SIZE;
+        List<Long> blockStarts = jdbcTemplate.queryForList(ALLOCATE_PRODUCT_IDS_SQL, Long.class, blocks);
+
+        List<Long> productIds = new ArrayList<>(count);
+        for (Long blockStart : blockStarts) {
+            for (int offset = 0; offset < IdAllocation.ALLOCATION_SIZE && productIds.size() < count; offset++) {
+                productIds.add(blockStart + offset);
+            }
+        }
+        return productIds;
+    }
+
+    private void reportError(ProductImportReport report, ImportRow row, String message) {
+        report.setFailed(report.getFailed() + 1);
+        if (report.getErrors().size() < maxReportedErrors) {
+            String productName = row.product() != null ? row.product().getProductName() : null;
+            report.getErrors().add(new ProductImportReport.RowError(row.line(), productName, message));
+        } else {
+            report.setErrorsTruncated(true);
+        }
+    }
+
+    // CSV: dòng đầu là header với tên cột theo CSV_COLUMNS (thứ tự tùy ý)
+    private Iterator<ImportRow> csvRows(BufferedReader reader) throws IOException {
+        CsvReader csvReader = new CsvReader(reader);
+        List<String> header = csvReader.readRecord();
+        if (header == null) {
+            return Collections.emptyIterator();
+        }
+
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            columns.put(header.get(i).trim(), i);
+        }
+        for (String required : List.of("productName", "price", "stock", "categoryId")) {
+            if (!columns.containsKey(required)) {
+                throw new InvalidDataException("File CSV thiếu cột bắt buộc: " + required
+                        + " (các cột hỗ trợ: " + String.join(", ", CSV_COLUMNS) + ")");
+            }
+        }
+
+        return new Iterator<>() {
+            private List<String> next = readNext();
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public ImportRow next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                long line = csvReader.getRecordStartLine();
+                List<String> record = next;
+                next = readNext();
+                return toRow(line, record);
+            }
+
+            private List<String> readNext() {
+                try {
+                    return csvReader.readRecord();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            private ImportRow toRow(long line, List<String> record) {
+                ProductsDTO product = new ProductsDTO();
+                try {
+                    product.setProductName(column(record, columns, "productName"));
+                    product.setProductDescription(column(record, columns, "productDescription"));
+                    product.setImageUrl(column(record, columns, "imageUrl"));
+                    String price = column(record, columns, "price");
+                    String stock = column(record, columns, "stock");
+                    String categoryId = column(record, columns, "categoryId");
+                    product.setPrice(price != null ? new BigDecimal(price) : null);
+                    product.setStock(stock != null ? Long.parseLong(stock) : null);
+                    product.setCategoryId(categoryId != null ? Long.parseLong(categoryId) : null);
+                    return new ImportRow(line, product, null);
+                } catch (NumberFormatException e) {
+                    return new ImportRow(line, product, "Giá trị số không hợp lệ: " + e.getMessage());
+                }
+            }
+        };
+    }
+
+    private static String column(List<String> record, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        if (index == null || index >= record.size()) {
+            return null;
+        }
+        String value = record.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    // NDJSON: mỗi dòng một object ProductsDTO
+    private Iterator<ImportRow> ndjsonRows(BufferedReader reader) {
+        return new Iterator<>() {
+            private long lineNumber = 0;
+            private String nextLine = readNext();
+
+            @Override
+            public boolean hasNext() {
+                return nextLine != null;
+            }
+
+            @Override
+            public ImportRow next() {
+                if (nextLine == null) {
+                    throw new NoSuchElementException();
+                }
+                long line = lineNumber;
+                String json = nextLine;
+                nextLine = readNext();
+                try {
+                    return new ImportRow(line, objectMapper.readValue(json, ProductsDTO.class), null);
+                } catch (JsonProcessingException e) {
+                    return new ImportRow(line, null, "JSON không hợp lệ: " + e.getOriginalMessage());
+                }
+            }
+
+            private String readNext() {
+                try {
+                    String line;
+                    do {
+                        line = reader.readLine();
+                        lineNumber++;
+                    } while (line != null && line.isBlank());
+                    return line;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+    }
+}
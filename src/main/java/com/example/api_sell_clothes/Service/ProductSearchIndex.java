@@ -0,0 +1,386 @@
+package com.example.api_sell_clothes.Service;
+
+import com.example.api_sell_clothes.Entity.Products;
+import com.example.api_sell_clothes.Event.ProductChangedEvent;
+import com.example.api_sell_clothes.Repository.ProductRepository;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.text.Normalizer;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Chỉ mục đảo (inverted index) trong bộ nhớ cho tên và mô tả sản phẩm.
+ * <p>
+ * Văn bản được bỏ dấu tiếng Việt ("Áo sơ mi đỏ" -> "ao so mi do") và tách thành term.
+ * Mỗi từ khóa khớp chính xác, theo tiền tố, hoặc gần đúng (sai 1-2 ký tự, tìm ứng viên qua trigram).
+ * Kết quả phải khớp mọi từ khóa và được xếp hạng: khớp ở tên nặng hơn ở mô tả,
+ * khớp chính xác > tiền tố > gần đúng.
+ * <p>
+ * Chỉ mục được dựng khi ứng dụng khởi động và cập nhật sau mỗi commit qua {@link ProductChangedEvent}.
+ * Thay đổi từ node khác (hoặc ghi thẳng vào DB) được đồng bộ định kỳ: index lại sản phẩm có updated_at mới
+ * và gỡ sản phẩm không còn trong DB (app.products.search.sync-interval). Nếu lần dựng lúc khởi động thất bại,
+ * lần đồng bộ kế tiếp sẽ dựng lại toàn bộ.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ProductSearchIndex {
+
+    private static final int NAME_WEIGHT = 3;
+    private static final int DESCRIPTION_WEIGHT = 1;
+
+    private static final int EXACT_SCORE = 4;
+    private static final int PREFIX_SCORE = 2;
+    private static final int FUZZY_SCORE = 1;
+
+    private static final int MIN_PREFIX_LENGTH = 2;
+    private static final int MIN_FUZZY_LENGTH = 4;
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final ProductRepository productRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final EntityManager entityManager;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // term -> (productId -> trọng số field chứa term)
+    private final NavigableMap<String, Map<Long, Integer>> postings = new TreeMap<>();
+
+    // trigram -> các term chứa trigram đó, dùng để tìm term gần đúng
+    private final Map<String, Set<String>> trigramIndex = new HashMap<>();
+
+    // productId -> các term đã index, để gỡ khi sản phẩm thay đổi hoặc bị xóa;
+    // có cả sản phẩm không có term nào để số phần tử khớp với số dòng trong DB
+    private final Map<Long, Set<String>> documentTerms = new HashMap<>();
+
+    @Value("${app.products.search.sync-interval:60000}")
+    private long syncIntervalMillis;
+
+    private volatile boolean ready;
+    private volatile LocalDateTime lastSync;
+
+    public record SearchResult(List<Long> productIds, int total) {
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        TransactionTemplate transactionTemplate = readOnlyTransaction();
+        LocalDateTime startedAt = LocalDateTime.now();
+
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            trigramIndex.clear();
+            documentTerms.clear();
+
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Stream<Products> products = productRepository.streamAll()) {
+                    products.forEach(product -> {
+                        indexInternal(product.getProductId(), product.getProductName(), product.getProductDescription());
+                        entityManager.detach(product);
+                    });
+                }
+            });
+
+            ready = true;
+            lastSync = startedAt;
+            log.info("Đã dựng chỉ mục tìm kiếm: {} sản phẩm, {} term", documentTerms.size(), postings.size());
+        } catch (RuntimeException e) {
+            log.error("Không thể dựng chỉ mục tìm kiếm sản phẩm, tạm dùng truy vấn DB", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Đồng bộ với DB; chỉ khóa ghi trong lúc cập nhật từng sản phẩm nên tìm kiếm không bị chặn lâu
+     */
+    @Scheduled(initialDelayString = "${app.products.search.sync-interval:60000}",
+            fixedDelayString = "${app.products.search.sync-interval:60000}")
+    public void syncFromDatabase() {
+        if (!ready) {
+            rebuild();
+            return;
+        }
+        LocalDateTime startedAt = LocalDateTime.now();
+        // Lùi lại một chu kỳ để không bỏ sót transaction commit muộn hoặc lệch đồng hồ giữa các node
+        LocalDateTime since = lastSync.minusNanos(syncIntervalMillis * 1_000_000);
+        try {
+            int[] counts = new int[2];
+            readOnlyTransaction().executeWithoutResult(status -> {
+                try (Stream<Products> products = productRepository.streamUpdatedSince(since)) {
+                    products.forEach(product -> {
+                        index(product.getProductId(), product.getProductName(), product.getProductDescription());
+                        entityManager.detach(product);
+                        counts[0]++;
+                    });
+                }
+
+                // Chỉ gỡ các id đã có trong chỉ mục trước khi đọc DB, tránh gỡ nhầm sản phẩm vừa được tạo
+                Set<Long> indexed;
+                lock.readLock().lock();
+                try {
+                    indexed = new HashSet<>(documentTerms.keySet());
+                } finally {
+                    lock.readLock().unlock();
+                }
+                // Sản phẩm mới đều đã được index ở trên nên số dòng trong DB không nhỏ hơn chỉ mục
+                // trừ khi có sản phẩm bị xóa; chỉ khi đó mới đọc toàn bộ id để tìm sản phẩm cần gỡ
+                if (productRepository.count() < indexed.size()) {
+                    productRepository.findAllProductIds().forEach(indexed::remove);
+                    indexed.forEach(this::remove);
+                    counts[1] = indexed.size();
+                }
+            });
+            lastSync = startedAt;
+            if (counts[0] > 0 || counts[1] > 0) {
+                log.debug("Đồng bộ chỉ mục tìm kiếm: index lại {} sản phẩm, gỡ {} sản phẩm", counts[0], counts[1]);
+            }
+        } catch (RuntimeException e) {
+            log.error("Không thể đồng bộ chỉ mục tìm kiếm sản phẩm với DB", e);
+        }
+    }
+
+    private TransactionTemplate readOnlyTransaction() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        return transactionTemplate;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.isDeleted()) {
+            remove(event.getProductId());
+        } else {
+            index(event.getProductId(), event.getProductName(), event.getProductDescription());
+        }
+    }
+
+    public void index(Long productId, String name, String description) {
+        lock.writeLock().lock();
+        try {
+            indexInternal(productId, name, description);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return id sản phẩm theo thứ tự xếp hạng trong khoảng [offset, offset + limit) và tổng số kết quả
+     */
+    public SearchResult search(String query, int offset, int limit) {
+        Set<String> queryTerms = new LinkedHashSet<>(tokenize(query));
+        if (queryTerms.isEmpty()) {
+            return new SearchResult(List.of(), 0);
+        }
+
+        lock.readLock().lock();
+        try {
+            Map<Long, Integer> scores = null;
+            for (String queryTerm : queryTerms) {
+                Map<Long, Integer> termScores = matchTerm(queryTerm);
+                if (scores == null) {
+                    scores = termScores;
+                } else {
+                    scores.keySet().retainAll(termScores.keySet());
+                    scores.replaceAll((productId, score) -> score + termScores.get(productId));
+                }
+                if (scores.isEmpty()) {
+                    return new SearchResult(List.of(), 0);
+                }
+            }
+
+            List<Long> ranked = scores.entrySet().stream()
+                    .sorted(Map.Entry.<Long, Integer>comparingByValue().reversed()
+                            .thenComparing(Map.Entry.comparingByKey()))
+                    .map(Map.Entry::getKey)
+                    .toList();
+
+            int from = Math.min(offset, ranked.size());
+            int to = Math.min(from + limit, ranked.size());
+            return new SearchResult(ranked.subList(from, to), ranked.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Bỏ dấu tiếng Việt và chuyển về chữ thường
+    static String fold(String text) {
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFD);
+        normalized = DIACRITICS.matcher(normalized).replaceAll("");
+        return normalized.replace('đ', 'd').replace('Đ', 'D').toLowerCase(Locale.ROOT);
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        return Arrays.stream(NON_WORD.split(fold(text)))
+                .filter(token -> !token.isEmpty())
+                .toList();
+    }
+
+    private Map<Long, Integer> matchTerm(String queryTerm) {
+        Map<Long, Integer> result = new HashMap<>();
+
+        Map<Long, Integer> exact = postings.get(queryTerm);
+        if (exact != null) {
+            exact.forEach((productId, weight) -> result.merge(productId, EXACT_SCORE * weight, Math::max));
+        }
+
+        if (queryTerm.length() >= MIN_PREFIX_LENGTH) {
+            postings.subMap(queryTerm, false, queryTerm + Character.MAX_VALUE, false)
+                    .values()
+                    .forEach(docs -> docs.forEach((productId, weight) ->
+                            result.merge(productId, PREFIX_SCORE * weight, Math::max)));
+        }
+
+        if (queryTerm.length() >= MIN_FUZZY_LENGTH) {
+            int maxDistance = queryTerm.length() >= 8 ? 2 : 1;
+            for (String candidate : fuzzyCandidates(queryTerm)) {
+                if (Math.abs(candidate.length() - queryTerm.length()) <= maxDistance
+                        && editDistance(queryTerm, candidate, maxDistance) <= maxDistance) {
+                    postings.get(candidate).forEach((productId, weight) ->
+                            result.merge(productId, FUZZY_SCORE * weight, Math::max));
+                }
+            }
+        }
+        return result;
+    }
+
+    // Term có chung ít nhất một phần ba số trigram với từ khóa
+    private Set<String> fuzzyCandidates(String queryTerm) {
+        Set<String> queryTrigrams = trigrams(queryTerm);
+        Map<String, Integer> shared = new HashMap<>();
+        for (String trigram : queryTrigrams) {
+            Set<String> terms = trigramIndex.get(trigram);
+            if (terms != null) {
+                terms.forEach(term -> shared.merge(term, 1, Integer::sum));
+            }
+        }
+
+        int minShared = Math.max(1, queryTrigrams.size() / 3);
+        Set<String> candidates = new HashSet<>();
+        shared.forEach((term, count) -> {
+            if (count >= minShared && !term.equals(queryTerm)) {
+                candidates.add(term);
+            }
+        });
+        return candidates;
+    }
+
+    private void indexInternal(Long productId, String name, String description) {
+        removeInternal(productId);
+
+        Map<String, Integer> weights = new HashMap<>();
+        tokenize(name).forEach(term -> weights.put(term, NAME_WEIGHT));
+        tokenize(description).forEach(term -> weights.merge(term, DESCRIPTION_WEIGHT,
+                (current, added) -> current == NAME_WEIGHT ? NAME_WEIGHT + DESCRIPTION_WEIGHT : current));
+
+        weights.forEach((term, weight) -> {
+            Map<Long, Integer> docs = postings.get(term);
+            if (docs == null) {
+                docs = new HashMap<>();
+                postings.put(term, docs);
+                for (String trigram : trigrams(term)) {
+                    trigramIndex.computeIfAbsent(trigram, key -> new HashSet<>()).add(term);
+                }
+            }
+            docs.put(productId, weight);
+        });
+        documentTerms.put(productId, weights.keySet());
+    }
+
+    private void removeInternal(Long productId) {
+        Set<String> terms = documentTerms.remove(productId);
+        if (terms == null) {
+            return;
+        }
+
+        for (String term : terms) {
+            Map<Long, Integer> docs = postings.get(term);
+            if (docs == null) {
+                continue;
+            }
+            docs.remove(productId);
+            if (docs.isEmpty()) {
+                postings.remove(term);
+                for (String trigram : trigrams(term)) {
+                    Set<String> trigramTerms = trigramIndex.get(trigram);
+                    if (trigramTerms != null) {
+                        trigramTerms.remove(term);
+                        if (trigramTerms.isEmpty()) {
+                            trigramIndex.remove(trigram);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static Set<String> trigrams(String term) {
+        String padded = " " + term + " ";
+        Set<String> result = new HashSet<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            result.add(padded.substring(i, i + 3));
+        }
+        return result;
+    }
+
+    // Khoảng cách Levenshtein, dừng sớm khi đã vượt maxDistance
+    private static int editDistance(String a, String b, int maxDistance) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > maxDistance) {
+                return maxDistance + 1;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+}
@@ -1,35 +1,76 @@
 package com.example.api_sell_clothes.Service;
 
+import com.example.api_sell_clothes.DTO.CursorPageDTO;
+import com.example.api_sell_clothes.DTO.Product.ProductFilterRequest;
+import com.example.api_sell_clothes.DTO.Product.ProductFilterResponse;
+import com.example.api_sell_clothes.DTO.Product.TrendingProduct;
 import com.example.api_sell_clothes.DTO.ProductsDTO;
 import com.example.api_sell_clothes.Entity.Categories;
 import com.example.api_sell_clothes.Entity.Products;
+import com.example.api_sell_clothes.Event.ProductChangedEvent;
 import com.example.api_sell_clothes.Exception.Common.*;
 import com.example.api_sell_clothes.Mapper.ProductMapper;
 import com.example.api_sell_clothes.Repository.CategoryRepository;
+import com.example.api_sell_clothes.Repository.ProductFacetRepository;
 import com.example.api_sell_clothes.Repository.ProductRepository;
+import com.example.api_sell_clothes.Repository.ProductSpecifications;
+import com.example.api_sell_clothes.Utils.CursorUtils;
+import com.example.api_sell_clothes.Utils.ProductValidationUtils;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.Page;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.util.List;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 @Transactional
 public class ProductService {
+    private static final int EXPORT_FLUSH_INTERVAL = 500;
+    private static final Set<String> FILTER_SORT_FIELDS = Set.of("productId", "productName", "price", "stock", "createdAt");
+
     private final ProductRepository productRepository;
     private final CategoryRepository categoryRepository;
     private final ProductMapper productMapper;
+    private final CategoryTreeCache categoryTreeCache;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final ProductSearchIndex productSearchIndex;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TrendingProducts trendingProducts;
+
+    @Value("${app.pagination.default-size:20}")
+    private int defaultPageSize;
+
+    @Value("${app.pagination.max-size:100}")
+    private int maxPageSize;
+
+    // Các mốc chia khoảng giá cho facet, tăng dần
+    @Value("${app.products.price-buckets:100000,200000,500000,1000000}")
+    private List<BigDecimal> priceBuckets;
 
     public ProductsDTO createProduct(ProductsDTO productDTO) {
         log.info("Tạo sản phẩm mới : {}", productDTO);
-        validateProductData(productDTO);
+        ProductValidationUtils.validateProductData(productDTO);
 
         // Kiểm tra tên sản phẩm đã tồn tại chưa
         if (productRepository.findByProductName(productDTO.getProductName()) != null) {
@@ -48,16 +89,31 @@ public class ProductService {
         Products product = productMapper.toEntity(productDTO);
         product.setCategory(category);
 
-        return productMapper.toDto(productRepository.save(product));
+        Products savedProduct = productRepository.save(product);
+        eventPublisher.publishEvent(ProductChangedEvent.saved(savedProduct));
+        return productMapper.toDto(savedProduct);
     }
 
+    /**
+     * Ghi đè toàn bộ sản phẩm (kể cả tồn kho) bằng giá trị client gửi lên, nên bắt buộc có version đã đọc
+     * và không retry: chạy lại sẽ ghi đè tồn kho vừa bị trừ bởi đơn hàng đồng thời.
+     */
     public ProductsDTO updateProduct(Long id, ProductsDTO productDTO) {
         log.info("Cập nhật sản phẩm : {}", productDTO);
 
+        if (productDTO.getVersion() == null) {
+            throw new InvalidDataException("Thiếu version của sản phẩm, vui lòng tải lại sản phẩm trước khi cập nhật");
+        }
+
         Products existingProduct = productRepository.findById(id)
                 .orElseThrow(() -> new NotFoundException("Sản phẩm", "id", id));
 
-        validateProductData(productDTO);
+        // Client gửi version đã đọc: nếu khác thì bản ghi đã bị sửa, không ghi đè
+        if (!productDTO.getVersion().equals(existingProduct.getVersion())) {
+            throw new VersionConflictException("Sản phẩm", id, productDTO.getVersion(), existingProduct.getVersion());
+        }
+
+        ProductValidationUtils.validateProductData(productDTO);
 
         // Kiểm tra tên sản phẩm có bị trùng không
         Products productWithSameName = productRepository.findByProductName(productDTO.getProductName());
@@ -83,7 +139,9 @@ public class ProductService {
         existingProduct.setCreatedAt(createdAt); // Giữ nguyên thời gian tạo
         existingProduct.setUpdatedAt(LocalDateTime.now());
 
-        return productMapper.toDto(productRepository.save(existingProduct));
+        Products savedProduct = productRepository.save(existingProduct);
+        eventPublisher.publishEvent(ProductChangedEvent.saved(savedProduct));
+        return productMapper.toDto(savedProduct);
     }
 
     public void deleteProduct(Long id) {
@@ -98,48 +156,149 @@ public class ProductService {
         }
 
         productRepository.delete(product);
+        eventPublisher.publishEvent(ProductChangedEvent.deleted(id));
     }
 
+    /**
+     * Lấy sản phẩm theo trang keyset (product_id tăng dần)
+     * @param cursor Cursor trả về từ trang trước, null/rỗng cho trang đầu
+     * @param size Số sản phẩm mỗi trang, bị giới hạn bởi app.pagination.max-size
+     */
     @Transactional(readOnly = true)
-    public List<ProductsDTO> getAllProducts() {
-        log.info("Lấy tất cả sản phẩm");
-        return productMapper.toDto(productRepository.findAll());
+    public CursorPageDTO<ProductsDTO> getAllProducts(String cursor, Integer size) {
+        long afterId = CursorUtils.decodeId(cursor);
+        int pageSize = resolvePageSize(size);
+        log.info("Lấy sản phẩm sau id {} (tối đa {})", afterId, pageSize);
+
+        // Lấy dư một bản ghi để biết còn trang tiếp theo hay không
+        List<ProductsDTO> products = productRepository.findDtoPageAfter(afterId, PageRequest.of(0, pageSize + 1));
+        boolean hasNext = products.size() > pageSize;
+        if (hasNext) {
+            products = products.subList(0, pageSize);
+        }
+
+        String nextCursor = hasNext ? CursorUtils.encodeId(products.get(products.size() - 1).getProductId()) : null;
+        return CursorPageDTO.<ProductsDTO>builder()
+                .items(products)
+                .nextCursor(nextCursor)
+                .hasNext(hasNext)
+                .size(pageSize)
+                .build();
+    }
+
+    /**
+     * Xuất toàn bộ sản phẩm (hoặc chỉ sản phẩm cập nhật sau since) dạng NDJSON, mỗi dòng một sản phẩm.
+     * Đọc qua Stream và detach từng entity nên bộ nhớ không phụ thuộc kích thước danh mục.
+     */
+    @Transactional(readOnly = true)
+    public long exportProducts(LocalDateTime since, OutputStream out) throws IOException {
+        log.info("Xuất sản phẩm dạng NDJSON, since = {}", since);
+        long count = 0;
+
+        try (Stream<Products> products = since != null
+                ? productRepository.streamUpdatedSince(since)
+                : productRepository.streamAll();
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setPrettyPrinter(new MinimalPrettyPrinter(""));
+
+            for (Products product : (Iterable<Products>) products::iterator) {
+                objectMapper.writeValue(generator, productMapper.toDto(product));
+                generator.writeRaw('\n');
+                entityManager.detach(product);
+
+                if (++count % EXPORT_FLUSH_INTERVAL == 0) {
+                    generator.flush();
+                }
+            }
+            generator.flush();
+        }
+
+        log.info("Đã xuất {} sản phẩm", count);
+        return count;
     }
 
     @Transactional(readOnly = true)
     public ProductsDTO getProductById(Long id) {
-        return productMapper.toDto(productRepository.findById(id)
-                .orElseThrow(() -> new NotFoundException("Sản phẩm", "id", id)));
+        return productRepository.findDtoById(id)
+                .orElseThrow(() -> new NotFoundException("Sản phẩm", "id", id));
     }
 
     @Transactional(readOnly = true)
-    public List<ProductsDTO> getProductsByCategory(Long categoryId) {
-        if (!categoryRepository.existsById(categoryId)) {
+    public List<ProductsDTO> getProductsByCategory(Long categoryId, Integer page, Integer size) {
+        if (!categoryTreeCache.get().contains(categoryId)) {
             throw new NotFoundException("Danh mục", "id", categoryId);
         }
-        return productMapper.toDto(productRepository.findByCategory_CategoryId(categoryId));
+        return productRepository.findDtoByCategoryId(categoryId, pageRequest(page, size));
     }
 
     @Transactional(readOnly = true)
-    public List<ProductsDTO> searchProducts(String keyword) {
+    public List<ProductsDTO> searchProducts(String keyword, Integer page, Integer size) {
         if (keyword == null || keyword.trim().isEmpty()) {
             throw new InvalidDataException("Từ khóa tìm kiếm không được để trống");
         }
-        return productMapper.toDto(
-                productRepository.findByProductNameContainingIgnoreCaseOrProductDescriptionContainingIgnoreCase(
-                        keyword, keyword));
+        Pageable pageable = pageRequest(page, size);
+
+        // Chỉ mục chưa dựng xong (vừa khởi động) thì tạm dùng truy vấn LIKE
+        if (!productSearchIndex.isReady()) {
+            return productRepository.findDtoByKeyword(keyword, pageable);
+        }
+
+        ProductSearchIndex.SearchResult result = productSearchIndex.search(
+                keyword, (int) pageable.getOffset(), pageable.getPageSize());
+        if (result.productIds().isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, ProductsDTO> productsById = productRepository.findDtoByIds(result.productIds()).stream()
+                .collect(Collectors.toMap(ProductsDTO::getProductId, Function.identity()));
+
+        // Giữ thứ tự xếp hạng của chỉ mục
+        return result.productIds().stream()
+                .map(productsById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    // Sản phẩm bán chạy lấy từ thống kê trong bộ nhớ, chỉ đọc DB để lấy thông tin hiển thị của K sản phẩm
+    @Transactional(readOnly = true)
+    public List<TrendingProduct> getTrendingProducts(TrendingProducts.Window window, Integer limit) {
+        int size = limit == null || limit <= 0 ? 10 : Math.min(limit, trendingProducts.getMaxResults());
+        List<TrendingProducts.Ranked> ranked = trendingProducts.top(window, size);
+        if (ranked.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        List<Long> productIds = ranked.stream().map(TrendingProducts.Ranked::productId).toList();
+        Map<Long, ProductsDTO> productsById = productRepository.findDtoByIds(productIds).stream()
+                .collect(Collectors.toMap(ProductsDTO::getProductId, Function.identity()));
+
+        // Giữ thứ tự xếp hạng, bỏ qua sản phẩm đã bị xóa
+        List<TrendingProduct> result = new ArrayList<>(ranked.size());
+        for (TrendingProducts.Ranked entry : ranked) {
+            ProductsDTO product = productsById.get(entry.productId());
+            if (product != null) {
+                result.add(TrendingProduct.builder()
+                        .productId(product.getProductId())
+                        .productName(product.getProductName())
+                        .price(product.getPrice())
+                        .imageUrl(product.getImageUrl())
+                        .estimatedUnits(entry.estimate())
+                        .build());
+            }
+        }
+        return result;
     }
 
     // Lọc sản phẩm theo khoảng giá
     @Transactional(readOnly = true)
-    public List<ProductsDTO> getProductsByPriceRange(BigDecimal minPrice, BigDecimal maxPrice) {
+    public List<ProductsDTO> getProductsByPriceRange(BigDecimal minPrice, BigDecimal maxPrice, Integer page, Integer size) {
         if (minPrice == null || maxPrice == null) {
             throw new InvalidDataException("Giá min và max không được null");
         }
         if (minPrice.compareTo(maxPrice) > 0) {
             throw new InvalidDataException("Giá min không được lớn hơn giá max");
         }
-        return productMapper.toDto(productRepository.findByPriceBetween(minPrice, maxPrice));
+        return productRepository.findDtoByPriceBetween(minPrice, maxPrice, pageRequest(page, size));
     }
 
     /**
@@ -148,30 +307,123 @@ public class ProductService {
      * @return Danh sách sản phẩm có tồn kho >= minStock
      */
     @Transactional(readOnly = true)
-    public List<ProductsDTO> getProductsByStock(Long minStock) {
+    public List<ProductsDTO> getProductsByStock(Long minStock, Integer page, Integer size) {
         if (minStock == null) {
             throw new InvalidDataException("Số lượng tồn kho tối thiểu không được null");
         }
-        return productMapper.toDto(productRepository.findByStockGreaterThanEqual(minStock));
+        return productRepository.findDtoByStockAtLeast(minStock, pageRequest(page, size));
+    }
+
+    /**
+     * Lọc sản phẩm theo giá, tồn kho, cây danh mục, kèm sắp xếp/phân trang và số lượng theo từng facet.
+     * Trang kết quả và facet dùng chung một Specification; tổng số kết quả cộng từ facet nên không cần COUNT riêng.
+     */
+    @Transactional(readOnly = true)
+    public ProductFilterResponse filterProducts(ProductFilterRequest filter) {
+        if (filter.getMinPrice() != null && filter.getMaxPrice() != null
+                && filter.getMinPrice().compareTo(filter.getMaxPrice()) > 0) {
+            throw new InvalidDataException("Giá min không được lớn hơn giá max");
+        }
+
+        Specification<Products> specification = Specification
+                .where(ProductSpecifications.priceAtLeast(filter.getMinPrice()))
+                .and(ProductSpecifications.priceAtMost(filter.getMaxPrice()))
+                .and(ProductSpecifications.stockAtLeast(filter.getMinStock()))
+                .and(ProductSpecifications.categoryIn(resolveCategoryFilter(filter)));
+
+        Pageable pageable = PageRequest.of(
+                filter.getPage() != null ? Math.max(filter.getPage(), 0) : 0,
+                resolvePageSize(filter.getSize()),
+                parseFilterSort(filter.getSort()));
+
+        List<ProductsDTO> products = productRepository.findPage(specification, pageable);
+        List<ProductFacetRepository.FacetRow> facetRows = productRepository.countFacets(specification, priceBuckets);
+
+        Map<Long, Long> categoryCounts = new LinkedHashMap<>();
+        long[] bucketCounts = new long[priceBuckets.size() + 1];
+        long total = 0;
+        for (ProductFacetRepository.FacetRow row : facetRows) {
+            categoryCounts.merge(row.categoryId(), row.count(), Long::sum);
+            bucketCounts[row.priceBucket()] += row.count();
+            total += row.count();
+        }
+
+        return ProductFilterResponse.builder()
+                .items(products)
+                .total(total)
+                .page(pageable.getPageNumber())
+                .size(pageable.getPageSize())
+                .categoryFacets(buildCategoryFacets(categoryCounts))
+                .priceFacets(buildPriceFacets(bucketCounts))
+                .build();
     }
 
     // Các phương thức hỗ trợ
-    private void validateProductData(ProductsDTO productDTO) {
-        if (productDTO == null) {
-            throw new InvalidDataException("Dữ liệu sản phẩm không được null");
+    private int resolvePageSize(Integer size) {
+        if (size == null) {
+            return defaultPageSize;
+        }
+        if (size <= 0) {
+            throw new InvalidDataException("Kích thước trang phải lớn hơn 0");
+        }
+        return Math.min(size, maxPageSize);
+    }
+
+    private Collection<Long> resolveCategoryFilter(ProductFilterRequest filter) {
+        if (filter.getCategoryId() == null) {
+            return null;
+        }
+        CategoryTree tree = categoryTreeCache.get();
+        if (!tree.contains(filter.getCategoryId())) {
+            throw new NotFoundException("Danh mục", "id", filter.getCategoryId());
+        }
+        if (Boolean.FALSE.equals(filter.getIncludeSubcategories())) {
+            return List.of(filter.getCategoryId());
         }
-        if (productDTO.getProductName() == null || productDTO.getProductName().trim().isEmpty()) {
-            throw new InvalidDataException("Tên sản phẩm không được để trống");
+        return tree.getSubtreeIds(filter.getCategoryId());
+    }
+
+    private Sort parseFilterSort(String sort) {
+        if (sort == null || sort.isBlank()) {
+            return Sort.by("productId");
         }
-        if (productDTO.getPrice() == null || productDTO.getPrice().compareTo(BigDecimal.ZERO) <= 0) {
-            throw new InvalidDataException("Giá sản phẩm phải lớn hơn 0");
+        String[] parts = sort.split(",");
+        String field = parts[0].trim();
+        if (!FILTER_SORT_FIELDS.contains(field)) {
+            throw new InvalidDataException("Không hỗ trợ sắp xếp theo: " + field);
         }
-        if (productDTO.getStock() == null || productDTO.getStock() < 0) {
-            throw new InvalidDataException("Số lượng tồn kho không được âm");
+        Sort.Direction direction = parts.length > 1 && "desc".equalsIgnoreCase(parts[1].trim())
+                ? Sort.Direction.DESC
+                : Sort.Direction.ASC;
+        // Thêm productId để thứ tự ổn định giữa các trang
+        return Sort.by(direction, field).and(Sort.by("productId"));
+    }
+
+    private List<ProductFilterResponse.CategoryFacet> buildCategoryFacets(Map<Long, Long> categoryCounts) {
+        CategoryTree tree = categoryTreeCache.get();
+        return categoryCounts.entrySet().stream()
+                .map(entry -> new ProductFilterResponse.CategoryFacet(
+                        entry.getKey(), tree.getName(entry.getKey()), entry.getValue()))
+                .sorted(Comparator.comparingLong(ProductFilterResponse.CategoryFacet::getCount).reversed())
+                .collect(Collectors.toList());
+    }
+
+    private List<ProductFilterResponse.PriceFacet> buildPriceFacets(long[] bucketCounts) {
+        List<ProductFilterResponse.PriceFacet> facets = new ArrayList<>();
+        for (int i = 0; i < bucketCounts.length; i++) {
+            BigDecimal from = i == 0 ? null : priceBuckets.get(i - 1);
+            BigDecimal to = i < priceBuckets.size() ? priceBuckets.get(i) : null;
+            facets.add(new ProductFilterResponse.PriceFacet(from, to, bucketCounts[i]));
         }
-        if (productDTO.getCategoryId() == null) {
-            throw new InvalidDataException("ID danh mục không được null");
+        return facets;
+    }
+
+    // Trang offset có giới hạn kích thước cho các endpoint danh sách cũ, sắp xếp ổn định theo id
+    private Pageable pageRequest(Integer page, Integer size) {
+        if (page != null && page < 0) {
+            throw new InvalidDataException("Số trang không được âm");
         }
+        return PageRequest.of(page != null ? page : 0, resolvePageSize(size), Sort.by("productId"));
     }
 
     private boolean isProductInUse(Long productId) {
@@ -1,10 +1,12 @@
 package com.example.api_sell_clothes.Service;
 
+import com.example.api_sell_clothes.Config.DatabaseMigrationRunner;
 import com.example.api_sell_clothes.DTO.PermissionsDTO;
 import com.example.api_sell_clothes.DTO.RolesDTO;
 import com.example.api_sell_clothes.Entity.Permissions;
 import com.example.api_sell_clothes.Entity.Roles;
 import com.example.api_sell_clothes.Entity.Users;
+import com.example.api_sell_clothes.Event.UserSecurityChangedEvent;
 import com.example.api_sell_clothes.Exception.AuthException.ResourceNotFoundException;
 import com.example.api_sell_clothes.Mapper.PermissionMapper;
 import com.example.api_sell_clothes.Mapper.RoleMapper;
@@ -13,6 +15,8 @@ import com.example.api_sell_clothes.Repository.RoleRepository;
 import com.example.api_sell_clothes.Repository.UserRepository;
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.DependsOn;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -25,6 +29,8 @@ import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
+// initRoles ghi vào bảng roles nên phải chạy sau khi sequence id đã được căn chỉnh
+@DependsOn(DatabaseMigrationRunner.BEAN_NAME)
 public class RoleService {
 
     private final RoleRepository roleRepository;
@@ -32,6 +38,7 @@ public class RoleService {
     private final UserRepository userRepository;
     private final RoleMapper roleMapper;
     private final PermissionMapper permissionMapper;
+    private final ApplicationEventPublisher eventPublisher;
 
     @PreAuthorize("hasAnyRole('ADMIN', 'SUPER_ADMIN')")
     public RolesDTO getRoleById(Long id) {
@@ -153,6 +160,10 @@ public class RoleService {
                     .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy vai trò: " + roleName));
             addRoleToUser(user, role);
         }
+
+        user.bumpTokenVersion();
+        userRepository.save(user);
+        eventPublisher.publishEvent(new UserSecurityChangedEvent(user.getUserId(), user.getUsername()));
     }
 
     @PreAuthorize("hasRole('SUPER_ADMIN')")
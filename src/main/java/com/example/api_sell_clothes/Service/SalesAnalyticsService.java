@@ -0,0 +1,177 @@
+package com.example.api_sell_clothes.Service;
+
+import com.example.api_sell_clothes.DTO.Analytics.CategorySalesBucket;
+import com.example.api_sell_clothes.DTO.Analytics.ProductSales;
+import com.example.api_sell_clothes.DTO.Analytics.SalesBucket;
+import com.example.api_sell_clothes.Exception.Common.InvalidDataException;
+import com.example.api_sell_clothes.Exception.Common.NotFoundException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+/**
+ * Báo cáo doanh số đọc từ các bảng rollup theo giờ do {@link SalesRollupService} ghi.
+ * Gộp lên ngày/tuần bằng date_trunc trên rollup nên truy vấn vài tháng chỉ đọc vài nghìn dòng đã tổng hợp.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SalesAnalyticsService {
+
+    public enum Granularity {
+        HOUR("hour"), DAY("day"), WEEK("week");
+
+        private final String unit;
+
+        Granularity(String unit) {
+            this.unit = unit;
+        }
+    }
+
+    private static final String SALES_SQL = "SELECT date_trunc(CAST(? AS text), bucket_start), "
+            + "SUM(order_count), SUM(revenue), SUM(units) "
+            + "FROM " + SalesRollupService.HOURLY_TABLE + " "
+            + "WHERE bucket_start >= ? AND bucket_start < ? "
+            + "GROUP BY 1 ORDER BY 1";
+
+    // %s: điều kiện lọc danh mục (rỗng nếu không lọc)
+    private static final String TOP_PRODUCTS_SQL = "SELECT r.product_id, p.product_name, p.category_id, "
+            + "SUM(r.order_count), SUM(r.units), SUM(r.revenue) "
+            + "FROM " + SalesRollupService.PRODUCT_HOURLY_TABLE + " r "
+            + "LEFT JOIN products p ON p.product_id = r.product_id "
+            + "WHERE r.bucket_start >= ? AND r.bucket_start < ?%s "
+            + "GROUP BY r.product_id, p.product_name, p.category_id "
+            + "ORDER BY SUM(r.revenue) DESC, r.product_id LIMIT ?";
+
+    private static final String CATEGORY_SALES_SQL = "SELECT date_trunc(CAST(? AS text), bucket_start), category_id, "
+            + "SUM(units), SUM(revenue) "
+            + "FROM " + SalesRollupService.PRODUCT_HOURLY_TABLE + " "
+            + "WHERE bucket_start >= ? AND bucket_start < ?%s "
+            + "GROUP BY 1, 2 ORDER BY 1, 2";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CategoryTreeCache categoryTreeCache;
+
+    @Value("${app.analytics.max-days:1096}")
+    private int maxDays;
+
+    @Value("${app.analytics.max-hourly-days:93}")
+    private int maxHourlyDays;
+
+    @Value("${app.pagination.max-size:100}")
+    private int maxPageSize;
+
+    public List<SalesBucket> getSales(LocalDate from, LocalDate to, Granularity granularity) {
+        log.info("Lấy doanh số từ {} đến {} theo {}", from, to, granularity);
+        validateRange(from, to, granularity);
+
+        return jdbcTemplate.query(SALES_SQL, (rs, rowNum) -> {
+            long orderCount = rs.getLong(2);
+            BigDecimal revenue = rs.getBigDecimal(3);
+            return SalesBucket.builder()
+                    .bucketStart(rs.getTimestamp(1).toLocalDateTime())
+                    .orderCount(orderCount)
+                    .revenue(revenue)
+                    .units(rs.getLong(4))
+                    .averageBasket(orderCount > 0
+                            ? revenue.divide(BigDecimal.valueOf(orderCount), 2, RoundingMode.HALF_UP)
+                            : BigDecimal.ZERO)
+                    .build();
+        }, granularity.unit, start(from), end(to));
+    }
+
+    // Sản phẩm bán chạy nhất theo doanh thu; lọc theo danh mục thì gồm cả các danh mục con
+    public List<ProductSales> getTopProducts(LocalDate from, LocalDate to, Long categoryId, Integer limit) {
+        log.info("Lấy sản phẩm bán chạy từ {} đến {}, danh mục {}", from, to, categoryId);
+        validateRange(from, to, Granularity.DAY);
+        int size = limit == null || limit <= 0 ? 20 : Math.min(limit, maxPageSize);
+        List<Long> categoryIds = resolveCategoryIds(categoryId);
+
+        String sql = String.format(TOP_PRODUCTS_SQL, categoryIds != null ? " AND r.category_id = ANY(?)" : "");
+        return jdbcTemplate.query(sql, ps -> {
+            int index = 1;
+            ps.setTimestamp(index++, start(from));
+            ps.setTimestamp(index++, end(to));
+            if (categoryIds != null) {
+                ps.setArray(index++, ps.getConnection().createArrayOf("bigint", categoryIds.toArray()));
+            }
+            ps.setInt(index, size);
+        }, (rs, rowNum) -> ProductSales.builder()
+                .productId(rs.getLong(1))
+                .productName(rs.getString(2))
+                .categoryId(rs.getObject(3) != null ? rs.getLong(3) : null)
+                .orderCount(rs.getLong(4))
+                .units(rs.getLong(5))
+                .revenue(rs.getBigDecimal(6))
+                .build());
+    }
+
+    // Số lượng bán và doanh thu theo danh mục (danh mục tại thời điểm giao hàng) trong từng khoảng thời gian
+    public List<CategorySalesBucket> getCategorySales(LocalDate from, LocalDate to, Granularity granularity, Long categoryId) {
+        log.info("Lấy doanh số theo danh mục từ {} đến {} theo {}", from, to, granularity);
+        validateRange(from, to, granularity);
+        List<Long> categoryIds = resolveCategoryIds(categoryId);
+        CategoryTree tree = categoryTreeCache.get();
+
+        String sql = String.format(CATEGORY_SALES_SQL, categoryIds != null ? " AND category_id = ANY(?)" : "");
+        return jdbcTemplate.query(sql, ps -> {
+            ps.setString(1, granularity.unit);
+            ps.setTimestamp(2, start(from));
+            ps.setTimestamp(3, end(to));
+            if (categoryIds != null) {
+                ps.setArray(4, ps.getConnection().createArrayOf("bigint", categoryIds.toArray()));
+            }
+        }, (rs, rowNum) -> {
+            Long rowCategoryId = rs.getObject(2) != null ? rs.getLong(2) : null;
+            return CategorySalesBucket.builder()
+                    .bucketStart(rs.getTimestamp(1).toLocalDateTime())
+                    .categoryId(rowCategoryId)
+                    .categoryName(rowCategoryId != null ? tree.getName(rowCategoryId) : null)
+                    .units(rs.getLong(3))
+                    .revenue(rs.getBigDecimal(4))
+                    .build();
+        });
+    }
+
+    private List<Long> resolveCategoryIds(Long categoryId) {
+        if (categoryId == null) {
+            return null;
+        }
+        CategoryTree tree = categoryTreeCache.get();
+        if (!tree.contains(categoryId)) {
+            throw new NotFoundException("Danh mục", "id", categoryId);
+        }
+        return tree.getSubtreeIds(categoryId);
+    }
+
+    private void validateRange(LocalDate from, LocalDate to, Granularity granularity) {
+        if (from == null || to == null || from.isAfter(to)) {
+            throw new InvalidDataException("Khoảng thời gian không hợp lệ");
+        }
+        if (granularity == null) {
+            throw new InvalidDataException("Đơn vị thời gian không được để trống");
+        }
+        int limit = granularity == Granularity.HOUR ? maxHourlyDays : maxDays;
+        if (ChronoUnit.DAYS.between(from, to) >= limit) {
+            throw new InvalidDataException("Khoảng thời gian tối đa " + limit + " ngày");
+        }
+    }
+
+    private static Timestamp start(LocalDate from) {
+        return Timestamp.valueOf(from.atStartOfDay());
+    }
+
+    // Cận trên không bao gồm: đầu ngày sau ngày "to"
+    private static Timestamp end(LocalDate to) {
+        return Timestamp.valueOf(to.plusDays(1).atStartOfDay());
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.api_sell_clothes.Service;
+
+import com.example.api_sell_clothes.Entity.OrderStatus;
+import com.example.api_sell_clothes.Event.OrderChangedEvent;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Ghi doanh số vào các bảng rollup theo giờ (theo giờ đặt hàng) khi đơn hàng chuyển sang delivered.
+ * <p>
+ * Id các đơn vừa giao được gom theo transaction và ghi bằng hai câu INSERT ... ON CONFLICT DO UPDATE ngay trước commit,
+ * nên rollup và trạng thái đơn luôn cùng commit hoặc cùng rollback, kể cả khi cập nhật hàng loạt.
+ * Rollup chỉ cần cộng, không bao giờ trừ, vì đơn đã giao bị khóa hoàn toàn: delivered là trạng thái cuối,
+ * không sửa/xóa được đơn, không thêm/sửa/xóa được dòng hàng ({@link OrderItemService}), và không tạo được đơn
+ * ở thẳng trạng thái delivered (đơn rỗng).
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SalesRollupService {
+
+    public static final String HOURLY_TABLE = "sales_rollup_hourly";
+    public static final String PRODUCT_HOURLY_TABLE = "sales_rollup_product_hourly";
+
+    public static final String CREATE_HOURLY_TABLE_SQL = "CREATE TABLE IF NOT EXISTS " + HOURLY_TABLE + " ("
+            + "bucket_start timestamp NOT NULL PRIMARY KEY, "
+            + "order_count bigint NOT NULL, "
+            + "revenue numeric(19, 2) NOT NULL, "
+            + "units bigint NOT NULL)";
+
+    public static final String CREATE_PRODUCT_HOURLY_TABLE_SQL = "CREATE TABLE IF NOT EXISTS " + PRODUCT_HOURLY_TABLE + " ("
+            + "bucket_start timestamp NOT NULL, "
+            + "product_id bigint NOT NULL, "
+            + "category_id bigint, "
+            + "order_count bigint NOT NULL, "
+            + "units bigint NOT NULL, "
+            + "revenue numeric(19, 2) NOT NULL, "
+            + "PRIMARY KEY (bucket_start, product_id))";
+
+    public static final String CREATE_PRODUCT_HOURLY_CATEGORY_INDEX_SQL = "CREATE INDEX IF NOT EXISTS "
+            + "idx_sales_rollup_product_hourly_category ON " + PRODUCT_HOURLY_TABLE + " (category_id, bucket_start)";
+
+    // %s: điều kiện chọn đơn hàng (theo danh sách id, hoặc mọi đơn đã giao khi backfill)
+    private static final String UPSERT_HOURLY_SQL = "INSERT INTO " + HOURLY_TABLE
+            + " (bucket_start, order_count, revenue, units) "
+            + "SELECT date_trunc('hour', o.order_date), COUNT(*), SUM(o.total_amount), COALESCE(SUM(u.units), 0) "
+            + "FROM orders o "
+            + "LEFT JOIN LATERAL (SELECT SUM(oi.quantity) AS units FROM order_items oi WHERE oi.order_id = o.order_id) u "
+            + "ON true "
+            + "WHERE %s GROUP BY 1 "
+            + "ON CONFLICT (bucket_start) DO UPDATE SET "
+            + "order_count = " + HOURLY_TABLE + ".order_count + EXCLUDED.order_count, "
+            + "revenue = " + HOURLY_TABLE + ".revenue + EXCLUDED.revenue, "
+            + "units = " + HOURLY_TABLE + ".units + EXCLUDED.units";
+
+    private static final String UPSERT_PRODUCT_HOURLY_SQL = "INSERT INTO " + PRODUCT_HOURLY_TABLE
+            + " (bucket_start, product_id, category_id, order_count, units, revenue) "
+            + "SELECT date_trunc('hour', o.order_date), oi.product_id, p.category_id, COUNT(DISTINCT o.order_id), "
+            + "SUM(oi.quantity), SUM(oi.quantity * oi.price) "
+            + "FROM orders o "
+            + "JOIN order_items oi ON oi.order_id = o.order_id "
+            + "JOIN products p ON p.product_id = oi.product_id "
+            + "WHERE %s GROUP BY 1, 2, 3 "
+            + "ON CONFLICT (bucket_start, product_id) DO UPDATE SET "
+            + "category_id = EXCLUDED.category_id, "
+            + "order_count = " + PRODUCT_HOURLY_TABLE + ".order_count + EXCLUDED.order_count, "
+            + "units = " + PRODUCT_HOURLY_TABLE + ".units + EXCLUDED.units, "
+            + "revenue = " + PRODUCT_HOURLY_TABLE + ".revenue + EXCLUDED.revenue";
+
+    private static final String BY_IDS_CONDITION = "o.order_id = ANY(?) AND o.status = " + OrderStatus.DELIVERED.getCode();
+    private static final String ALL_DELIVERED_CONDITION = "o.status = " + OrderStatus.DELIVERED.getCode();
+
+    // Khóa tài nguyên gắn với transaction hiện tại: tập id đơn vừa chuyển sang delivered
+    private static final Object PENDING_KEY = new Object();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManager entityManager;
+
+    @EventListener
+    public void onOrderChanged(OrderChangedEvent event) {
+        if (!becameDelivered(event)) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            rollup(List.of(event.getOrderId()));
+            return;
+        }
+        pendingOrderIds().add(event.getOrderId());
+    }
+
+    /**
+     * Dựng rollup từ toàn bộ đơn đã giao khi bảng rollup còn trống (lần đầu tạo bảng).
+     * Khóa bảng rollup trước khi kiểm tra: nhiều node khởi động cùng lúc thì chỉ node đầu tiên backfill,
+     * các node sau chờ khóa rồi thấy bảng đã có dữ liệu.
+     */
+    @Transactional
+    public void backfillIfEmpty() {
+        // EXCLUSIVE vẫn cho đọc nhưng chặn ghi, kể cả upsert của đơn vừa giao, cho tới khi backfill commit
+        jdbcTemplate.execute("LOCK TABLE " + HOURLY_TABLE + ", " + PRODUCT_HOURLY_TABLE + " IN EXCLUSIVE MODE");
+        Boolean empty = jdbcTemplate.queryForObject(
+                "SELECT NOT EXISTS (SELECT 1 FROM " + HOURLY_TABLE + ")", Boolean.class);
+        if (!Boolean.TRUE.equals(empty)) {
+            return;
+        }
+        jdbcTemplate.update(String.format(UPSERT_HOURLY_SQL, ALL_DELIVERED_CONDITION));
+        jdbcTemplate.update(String.format(UPSERT_PRODUCT_HOURLY_SQL, ALL_DELIVERED_CONDITION));
+        log.info("Đã dựng rollup doanh số từ các đơn hàng đã giao");
+    }
+
+    private static boolean becameDelivered(OrderChangedEvent event) {
+        return event.getAfter() != null
+                && event.getAfter().status() == OrderStatus.DELIVERED
+                && (event.getBefore() == null || event.getBefore().status() != OrderStatus.DELIVERED);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Set<Long> pendingOrderIds() {
+        Set<Long> orderIds = (Set<Long>) TransactionSynchronizationManager.getResource(PENDING_KEY);
+        if (orderIds != null) {
+            return orderIds;
+        }
+
+        Set<Long> created = new LinkedHashSet<>();
+        TransactionSynchronizationManager.bindResource(PENDING_KEY, created);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                // Đẩy thay đổi của Hibernate xuống DB trước để câu rollup đọc được trạng thái/tổng tiền mới nhất
+                entityManager.flush();
+                rollup(created);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(PENDING_KEY);
+            }
+        });
+        return created;
+    }
+
+    private void rollup(Collection<Long> orderIds) {
+        if (orderIds.isEmpty()) {
+            return;
+        }
+        Long[] ids = orderIds.toArray(Long[]::new);
+        jdbcTemplate.update(String.format(UPSERT_HOURLY_SQL, BY_IDS_CONDITION),
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", ids)));
+        jdbcTemplate.update(String.format(UPSERT_PRODUCT_HOURLY_SQL, BY_IDS_CONDITION),
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", ids)));
+        log.debug("Đã cộng {} đơn hàng đã giao vào rollup doanh số", ids.length);
+    }
+}
@@ -0,0 +1,238 @@
+package com.example.api_sell_clothes.Service;
+
+import com.example.api_sell_clothes.Event.OrderItemsCreatedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+
+/**
+ * Sản phẩm bán chạy trong giờ/ngày/tuần gần nhất, tính hoàn toàn trong bộ nhớ.
+ * <p>
+ * Mỗi cửa sổ là một vòng các lát thời gian; mỗi lát có một {@link CountMinSketch} và một tập ứng viên
+ * (các sản phẩm có ước lượng lớn nhất trong lát). Lát cũ bị tái sử dụng khi thời gian trôi qua nên cửa sổ tự trượt.
+ * Top-K của mỗi cửa sổ được tính lại tối đa mỗi refresh-interval và cache lại, nên mỗi lần đọc chỉ tốn O(K).
+ * Dựng từ order_items của tuần gần nhất khi khởi động, sau đó cập nhật theo {@link OrderItemsCreatedEvent}.
+ */
+@Slf4j
+@Component
+public class TrendingProducts {
+
+    public enum Window {
+        HOUR(Duration.ofHours(1), 12),
+        DAY(Duration.ofDays(1), 24),
+        WEEK(Duration.ofDays(7), 28);
+
+        private final long sliceMillis;
+        private final int slices;
+
+        Window(Duration length, int slices) {
+            this.sliceMillis = length.toMillis() / slices;
+            this.slices = slices;
+        }
+    }
+
+    public record Ranked(long productId, long estimate) {
+    }
+
+    // Gom theo lát 5 phút (lát nhỏ nhất, của cửa sổ HOUR) để dữ liệu khởi tạo rơi đúng lát
+    private static final String SEED_SQL = "SELECT oi.product_id, "
+            + "date_trunc('hour', o.order_date) + floor(date_part('minute', o.order_date) / 5) * interval '5 minutes', "
+            + "SUM(oi.quantity) "
+            + "FROM order_items oi JOIN orders o ON o.order_id = oi.order_id "
+            + "WHERE o.order_date >= ? AND oi.quantity > 0 "
+            + "GROUP BY 1, 2";
+
+    private final class Slice {
+        private long index = Long.MIN_VALUE;
+        private final CountMinSketch sketch = new CountMinSketch(sketchDepth, sketchWidth);
+        // productId -> ước lượng trong lát, giữ tối đa candidateCapacity phần tử lớn nhất
+        private final Map<Long, Long> candidates = new HashMap<>();
+
+        void reset(long newIndex) {
+            index = newIndex;
+            sketch.clear();
+            candidates.clear();
+        }
+    }
+
+    private final class SlidingWindow {
+        private final Window window;
+        private final Slice[] ring;
+        private List<Ranked> cachedTop = List.of();
+        private long cachedAt = Long.MIN_VALUE;
+        private long cachedSliceIndex = Long.MIN_VALUE;
+        private boolean dirty = true;
+
+        SlidingWindow(Window window) {
+            this.window = window;
+            this.ring = new Slice[window.slices];
+            for (int i = 0; i < ring.length; i++) {
+                ring[i] = new Slice();
+            }
+        }
+
+        void add(long productId, long quantity, long timeMillis, long nowMillis) {
+            long currentIndex = nowMillis / window.sliceMillis;
+            // Thời điểm tương lai (lệch đồng hồ) được tính vào lát hiện tại
+            long index = Math.min(timeMillis / window.sliceMillis, currentIndex);
+            if (index <= currentIndex - window.slices) {
+                return;
+            }
+            Slice slice = ring[(int) Math.floorMod(index, (long) window.slices)];
+            if (slice.index != index) {
+                if (slice.index > index) {
+                    return;
+                }
+                slice.reset(index);
+            }
+            slice.sketch.add(productId, quantity);
+            slice.candidates.put(productId, slice.sketch.estimate(productId));
+            if (slice.candidates.size() > candidateCapacity) {
+                evictSmallest(slice.candidates);
+            }
+            dirty = true;
+        }
+
+        List<Ranked> top(long nowMillis) {
+            long currentIndex = nowMillis / window.sliceMillis;
+            boolean expired = currentIndex != cachedSliceIndex;
+            boolean stale = dirty && nowMillis - cachedAt >= refreshIntervalMillis;
+            if (expired || stale) {
+                cachedTop = computeTop(currentIndex);
+                cachedAt = nowMillis;
+                cachedSliceIndex = currentIndex;
+                dirty = false;
+            }
+            return cachedTop;
+        }
+
+        private List<Ranked> computeTop(long currentIndex) {
+            List<Slice> live = new ArrayList<>(ring.length);
+            Set<Long> candidateIds = new HashSet<>();
+            for (Slice slice : ring) {
+                if (slice.index > currentIndex - window.slices && slice.index <= currentIndex) {
+                    live.add(slice);
+                    candidateIds.addAll(slice.candidates.keySet());
+                }
+            }
+
+            // Min-heap giữ maxResults ứng viên có tổng ước lượng lớn nhất trên toàn cửa sổ
+            PriorityQueue<Ranked> heap = new PriorityQueue<>(Comparator.comparingLong(Ranked::estimate));
+            for (Long productId : candidateIds) {
+                long estimate = 0;
+                for (Slice slice : live) {
+                    estimate += slice.sketch.estimate(productId);
+                }
+                if (heap.size() < maxResults) {
+                    heap.add(new Ranked(productId, estimate));
+                } else if (estimate > heap.peek().estimate()) {
+                    heap.poll();
+                    heap.add(new Ranked(productId, estimate));
+                }
+            }
+
+            List<Ranked> ranked = new ArrayList<>(heap);
+            ranked.sort(Comparator.comparingLong(Ranked::estimate).reversed()
+                    .thenComparingLong(Ranked::productId));
+            return List.copyOf(ranked);
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Clock clock;
+    private final int sketchDepth;
+    private final int sketchWidth;
+    private final int maxResults;
+    private final int candidateCapacity;
+    private final long refreshIntervalMillis;
+    private final Map<Window, SlidingWindow> windows = new EnumMap<>(Window.class);
+
+    public TrendingProducts(JdbcTemplate jdbcTemplate,
+                            @Value("${app.products.trending.sketch-depth:4}") int sketchDepth,
+                            @Value("${app.products.trending.sketch-width:2048}") int sketchWidth,
+                            @Value("${app.products.trending.max-size:100}") int maxResults,
+                            @Value("${app.products.trending.refresh-interval:1000}") long refreshIntervalMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.clock = Clock.systemDefaultZone();
+        this.sketchDepth = sketchDepth;
+        this.sketchWidth = sketchWidth;
+        this.maxResults = maxResults;
+        // Giữ dư ứng viên mỗi lát để sản phẩm đứng đầu cả cửa sổ không bị loại sớm ở từng lát
+        this.candidateCapacity = maxResults * 4;
+        this.refreshIntervalMillis = refreshIntervalMillis;
+        for (Window window : Window.values()) {
+            windows.put(window, new SlidingWindow(window));
+        }
+    }
+
+    public int getMaxResults() {
+        return maxResults;
+    }
+
+    public synchronized List<Ranked> top(Window window, int limit) {
+        List<Ranked> ranked = windows.get(window).top(clock.millis());
+        return ranked.size() <= limit ? ranked : ranked.subList(0, limit);
+    }
+
+    public synchronized void record(long productId, long quantity, LocalDateTime orderedAt) {
+        if (quantity <= 0) {
+            return;
+        }
+        long timeMillis = orderedAt != null
+                ? orderedAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                : clock.millis();
+        long nowMillis = clock.millis();
+        for (SlidingWindow window : windows.values()) {
+            window.add(productId, quantity, timeMillis, nowMillis);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void seed() {
+        LocalDateTime since = LocalDateTime.now(clock).minus(Duration.ofMillis(
+                Window.WEEK.sliceMillis * Window.WEEK.slices));
+        try {
+            long[] rows = {0};
+            jdbcTemplate.query(SEED_SQL, rs -> {
+                record(rs.getLong(1), rs.getLong(3), rs.getTimestamp(2).toLocalDateTime());
+                rows[0]++;
+            }, Timestamp.valueOf(since));
+            log.info("Đã khởi tạo thống kê sản phẩm bán chạy từ {} nhóm dòng hàng", rows[0]);
+        } catch (RuntimeException e) {
+            log.error("Không thể khởi tạo thống kê sản phẩm bán chạy, bắt đầu từ rỗng", e);
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onOrderItemsCreated(OrderItemsCreatedEvent event) {
+        event.getQuantitiesByProduct().forEach((productId, quantity) -> {
+            if (productId != null && quantity != null) {
+                record(productId, quantity, event.getOrderedAt());
+            }
+        });
+    }
+
+    private static void evictSmallest(Map<Long, Long> candidates) {
+        Long smallestKey = null;
+        long smallest = Long.MAX_VALUE;
+        for (Map.Entry<Long, Long> entry : candidates.entrySet()) {
+            if (entry.getValue() < smallest) {
+                smallest = entry.getValue();
+                smallestKey = entry.getKey();
+            }
+        }
+        candidates.remove(smallestKey);
+    }
+}
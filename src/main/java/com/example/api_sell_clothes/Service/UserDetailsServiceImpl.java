@@ -1,41 +1,78 @@
 package com.example.api_sell_clothes.Service;
 
 import com.example.api_sell_clothes.Entity.Users;
+import com.example.api_sell_clothes.Event.UserSecurityChangedEvent;
 import com.example.api_sell_clothes.Repository.UserRepository;
-import lombok.RequiredArgsConstructor;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
-import org.springframework.security.core.userdetails.User;
+import com.example.api_sell_clothes.Security.UserPrincipal;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
 
-import java.util.List;
-import java.util.stream.Collectors;
+import java.time.Duration;
 
 @Service
-@RequiredArgsConstructor
-public class UserDetailsServiceImpl implements UserDetailsService {
+public class UserDetailsServiceImpl implements UserDetailsService, UserDetailsPasswordService {
 
     private final UserRepository userRepository;
 
+    // Cache UserDetails theo username; bị xóa ngay khi vai trò, trạng thái hoặc mật khẩu thay đổi
+    private final Cache<String, UserPrincipal> userDetailsCache;
+
+    public UserDetailsServiceImpl(UserRepository userRepository,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${security.user-details-cache.max-size:10000}") long maxSize,
+                                  @Value("${security.user-details-cache.ttl:10m}") Duration ttl) {
+        this.userRepository = userRepository;
+        this.userDetailsCache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        // Xuất cache.gets{result=hit|miss}, cache.evictions, cache.size qua /actuator/metrics
+        CaffeineCacheMetrics.monitor(meterRegistry, userDetailsCache, "userDetails");
+    }
+
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+        UserPrincipal cached = userDetailsCache.get(username, this::loadPrincipal);
+        return cached.copy();
+    }
+
+    /**
+     * Được DaoAuthenticationProvider gọi sau khi đăng nhập thành công với hash cần nâng cấp (cost/thuật toán cũ)
+     */
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        userRepository.updatePassword(user.getUsername(), newPassword);
+        userDetailsCache.invalidate(user.getUsername());
+        if (user instanceof UserPrincipal principal) {
+            return principal.withPassword(newPassword);
+        }
+        return loadUserByUsername(user.getUsername());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onUserSecurityChanged(UserSecurityChangedEvent event) {
+        if (event.getUsername() != null) {
+            userDetailsCache.invalidate(event.getUsername());
+        }
+    }
+
+    private UserPrincipal loadPrincipal(String username) {
         Users user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found with username: " + username));
 
-        List<SimpleGrantedAuthority> authorities = user.getRoles().stream()
-                .map(role -> new SimpleGrantedAuthority("ROLE_" + role.getRoleName()))
-                .collect(Collectors.toList());
-
-        return new User(
-                user.getUsername(),
-                user.getPassword(),
-                user.getEnabled(),
-                true, // account non expired
-                true, // credentials non expired
-                true, // account non locked
-                authorities
-        );
+        return UserPrincipal.from(user);
     }
 }
@@ -4,12 +4,14 @@ import com.example.api_sell_clothes.DTO.Auth.ChangePasswordRequest;
 import com.example.api_sell_clothes.DTO.UsersDTO;
 import com.example.api_sell_clothes.Entity.Roles;
 import com.example.api_sell_clothes.Entity.Users;
+import com.example.api_sell_clothes.Event.UserSecurityChangedEvent;
 import com.example.api_sell_clothes.Exception.AuthException.ResourceNotFoundException;
 import com.example.api_sell_clothes.Mapper.UserMapper;
 import com.example.api_sell_clothes.Repository.RoleRepository;
 import com.example.api_sell_clothes.Repository.UserRepository;
 import com.example.api_sell_clothes.Utils.UserValidationUtils;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
@@ -29,6 +31,7 @@ public class UserService {
     private final UserMapper userMapper;
     private final PasswordEncoder passwordEncoder;
     private final RoleService roleService;
+    private final ApplicationEventPublisher eventPublisher;
 
     @PreAuthorize("hasAnyRole('ADMIN', 'SUPER_ADMIN')")
     public List<UsersDTO> getAllUsers() {
@@ -74,6 +77,9 @@ public class UserService {
         // Validate thông tin cập nhật
         UserValidationUtils.validateUserUpdate(userDTO, existingUser, userRepository);
 
+        String previousUsername = existingUser.getUsername();
+        boolean securityChanged = isSecurityRelevantUpdate(existingUser, userDTO);
+
         // Cập nhật thông tin
         updateUserDetails(existingUser, userDTO);
 
@@ -82,17 +88,22 @@ public class UserService {
             updateUserRoles(existingUser, userDTO.getRoles());
         }
 
+        if (securityChanged) {
+            existingUser.bumpTokenVersion();
+        }
+
         Users updatedUser = userRepository.save(existingUser);
+        // Email/họ tên cũng nằm trong UserDetails đã cache nên luôn phát sự kiện
+        eventPublisher.publishEvent(new UserSecurityChangedEvent(updatedUser.getUserId(), previousUsername));
         return userMapper.toDto(updatedUser);
     }
 
     @PreAuthorize("hasAnyRole('ADMIN', 'SUPER_ADMIN')")
     @Transactional
     public void deleteUser(Long id) {
-        if (!userRepository.existsById(id)) {
-            throw new ResourceNotFoundException("Không tìm thấy người dùng với id: " + id);
-        }
-        userRepository.deleteById(id);
+        Users user = findUserById(id);
+        userRepository.delete(user);
+        publishSecurityChange(user);
     }
 
     @Transactional
@@ -106,6 +117,7 @@ public class UserService {
         user.setPassword(passwordEncoder.encode(request.getNewPassword()));
         user.setUpdatedAt(LocalDateTime.now());
         userRepository.save(user);
+        publishSecurityChange(user);
     }
 
     @PreAuthorize("hasAnyRole('ADMIN', 'SUPER_ADMIN')")
@@ -119,7 +131,9 @@ public class UserService {
         }
 
         user.getRoles().add(role);
+        user.bumpTokenVersion();
         userRepository.save(user);
+        publishSecurityChange(user);
     }
 
     @PreAuthorize("hasAnyRole('ADMIN', 'SUPER_ADMIN')")
@@ -132,7 +146,9 @@ public class UserService {
             throw new IllegalArgumentException("Người dùng không có vai trò này");
         }
 
+        user.bumpTokenVersion();
         userRepository.save(user);
+        publishSecurityChange(user);
     }
 
     public boolean existsByUsername(String username) {
@@ -155,6 +171,20 @@ public class UserService {
                 .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy vai trò với id: " + id));
     }
 
+    private void publishSecurityChange(Users user) {
+        eventPublisher.publishEvent(new UserSecurityChangedEvent(user.getUserId(), user.getUsername()));
+    }
+
+    // Thay đổi username, trạng thái hoặc vai trò làm các token đã cấp không còn đúng
+    private boolean isSecurityRelevantUpdate(Users existingUser, UsersDTO userDTO) {
+        boolean usernameChanged = userDTO.getUsername() != null
+                && !userDTO.getUsername().equals(existingUser.getUsername());
+        boolean enabledChanged = userDTO.getEnabled() != null
+                && !userDTO.getEnabled().equals(existingUser.getEnabled());
+        boolean rolesChanged = userDTO.getRoles() != null && !userDTO.getRoles().isEmpty();
+        return usernameChanged || enabledChanged || rolesChanged;
+    }
+
     private void initializeNewUser(Users user, UsersDTO userDTO) {
         // Mã hóa mật khẩu
         user.setPassword(passwordEncoder.encode(userDTO.getPassword()));
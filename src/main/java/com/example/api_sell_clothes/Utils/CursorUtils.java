@@ -0,0 +1,43 @@
+package com.example.api_sell_clothes.Utils;
+
+import com.example.api_sell_clothes.Exception.Common.InvalidDataException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Mã hóa/giải mã cursor phân trang keyset. Client chỉ nhận token base64url, không phụ thuộc vào khóa bên trong.
+ */
+public class CursorUtils {
+
+    private static final String ID_PREFIX = "id:";
+
+    private CursorUtils() {
+    }
+
+    public static String encodeId(Long id) {
+        if (id == null) {
+            return null;
+        }
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((ID_PREFIX + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return id cuối cùng của trang trước, hoặc 0 nếu cursor rỗng (trang đầu)
+     */
+    public static long decodeId(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0L;
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!decoded.startsWith(ID_PREFIX)) {
+                throw new InvalidDataException("Cursor không hợp lệ");
+            }
+            return Long.parseLong(decoded.substring(ID_PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidDataException("Cursor không hợp lệ");
+        }
+    }
+}
@@ -1,12 +1,9 @@
 package com.example.api_sell_clothes.Utils;
 
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Component;
 
 @Component
 public class PasswordUtil {
-    private static final BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
-
     public static boolean isStrongPassword(String password) {
         // Ví dụ: ít nhất 8 ký tự, chứa chữ hoa, chữ thường, số và ký tự đặc biệt
         String regex = "^(?=.*[0-9])(?=.*[a-z])(?=.*[A-Z])(?=.*[@#$%^&+=])(?=\\S+$).{8,}$";
@@ -0,0 +1,31 @@
+package com.example.api_sell_clothes.Utils;
+
+import com.example.api_sell_clothes.DTO.ProductsDTO;
+import com.example.api_sell_clothes.Exception.Common.InvalidDataException;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class ProductValidationUtils {
+
+    // Validate dữ liệu sản phẩm khi tạo/cập nhật/nhập hàng loạt
+    public static void validateProductData(ProductsDTO productDTO) {
+        if (productDTO == null) {
+            throw new InvalidDataException("Dữ liệu sản phẩm không được null");
+        }
+        if (productDTO.getProductName() == null || productDTO.getProductName().trim().isEmpty()) {
+            throw new InvalidDataException("Tên sản phẩm không được để trống");
+        }
+        if (productDTO.getPrice() == null || productDTO.getPrice().compareTo(BigDecimal.ZERO) <= 0) {
+            throw new InvalidDataException("Giá sản phẩm phải lớn hơn 0");
+        }
+        if (productDTO.getStock() == null || productDTO.getStock() < 0) {
+            throw new InvalidDataException("Số lượng tồn kho không được âm");
+        }
+        if (productDTO.getCategoryId() == null) {
+            throw new InvalidDataException("ID danh mục không được null");
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.api_sell_clothes.Benchmark;
+
+import com.example.api_sell_clothes.Entity.Roles;
+import com.example.api_sell_clothes.Entity.Users;
+import com.example.api_sell_clothes.Security.InMemoryTokenRevocationStore;
+import com.example.api_sell_clothes.Security.JwtClaimsCache;
+import com.example.api_sell_clothes.Security.JwtKeyRing;
+import com.example.api_sell_clothes.Service.JwtService;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.SecretKey;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * So sánh throughput ký/parse JWT trước (giải mã khóa và dựng parser ở mỗi lần gọi)
+ * và sau khi JwtService dùng khóa/parser dựng sẵn.
+ * <p>
+ * Chạy: {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.example.api_sell_clothes.Benchmark.JwtServiceBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtServiceBenchmark {
+
+    private static final String SECRET = "404E635266556A586E3272357538782F413F4428472B4B6250645367566B5970";
+    private static final long EXPIRATION = 3600000L;
+
+    private JwtService jwtService;
+    private JwtParser prebuiltParser;
+    private Users user;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        JwtClaimsCache claimsCache = new JwtClaimsCache(10000);
+        JwtKeyRing keyRing = new JwtKeyRing(SECRET, "", claimsCache);
+
+        jwtService = new JwtService(null, claimsCache, null, keyRing,
+                new InMemoryTokenRevocationStore(60000, 1000));
+        ReflectionTestUtils.setField(jwtService, "jwtExpiration", EXPIRATION);
+        ReflectionTestUtils.setField(jwtService, "refreshExpiration", EXPIRATION);
+        ReflectionTestUtils.invokeMethod(jwtService, "initParser");
+
+        prebuiltParser = Jwts.parser().keyLocator(keyRing).build();
+
+        Roles role = Roles.builder().roleId(1L).roleName("USER").build();
+        user = Users.builder()
+                .userId(1L)
+                .username("benchmark")
+                // generateToken(Users) đi qua UserPrincipal.from, User của Spring không chấp nhận password null
+                .password("{noop}benchmark")
+                .email("benchmark@example.com")
+                .fullName("Benchmark User")
+                .enabled(true)
+                .roles(Set.of(role))
+                .build();
+        token = jwtService.generateToken(user);
+    }
+
+    // Trước: giải mã Base64 và dựng khóa HMAC mỗi lần ký
+    @Benchmark
+    public String generateTokenBaseline() {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put("roles", user.getRoles().stream().map(r -> "ROLE_" + r.getRoleName()).toList());
+        claims.put("userId", user.getUserId());
+        claims.put("email", user.getEmail());
+        claims.put("fullName", user.getFullName());
+        return Jwts.builder()
+                .claims(claims)
+                .subject(user.getUsername())
+                .issuedAt(new Date())
+                .expiration(new Date(System.currentTimeMillis() + EXPIRATION))
+                .signWith(legacySignInKey(), Jwts.SIG.HS256)
+                .compact();
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtService.generateToken(user);
+    }
+
+    // Trước: dựng khóa và parser mới mỗi lần parse
+    @Benchmark
+    public Claims extractAllClaimsBaseline() {
+        return Jwts.parser()
+                .verifyWith(legacySignInKey())
+                .build()
+                .parseSignedClaims(token)
+                .getPayload();
+    }
+
+    // Sau, không tính cache: parser dựng sẵn, tra khóa theo kid
+    @Benchmark
+    public Claims extractAllClaimsPrebuiltParser() {
+        return prebuiltParser.parseSignedClaims(token).getPayload();
+    }
+
+    // Sau, đường đi thực tế: lần gọi lặp lại với cùng token lấy từ cache
+    @Benchmark
+    public Claims extractAllClaims() {
+        return jwtService.extractAllClaims(token);
+    }
+
+    private static SecretKey legacySignInKey() {
+        return Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JwtServiceBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.api_sell_clothes.Entity;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderStatusTest {
+
+    @Test
+    void transitionTableFollowsOrderLifecycle() {
+        assertEquals(EnumSet.of(OrderStatus.PROCESSING, OrderStatus.CANCELLED),
+                OrderStatus.PENDING.getAllowedTransitions());
+        assertEquals(EnumSet.of(OrderStatus.SHIPPED, OrderStatus.CANCELLED),
+                OrderStatus.PROCESSING.getAllowedTransitions());
+        assertEquals(EnumSet.of(OrderStatus.DELIVERED, OrderStatus.CANCELLED),
+                OrderStatus.SHIPPED.getAllowedTransitions());
+        assertTrue(OrderStatus.DELIVERED.getAllowedTransitions().isEmpty());
+        assertTrue(OrderStatus.CANCELLED.getAllowedTransitions().isEmpty());
+
+        assertTrue(OrderStatus.PENDING.canTransitionTo(OrderStatus.PROCESSING));
+        assertFalse(OrderStatus.PENDING.canTransitionTo(OrderStatus.DELIVERED));
+        assertFalse(OrderStatus.PENDING.canTransitionTo(OrderStatus.PENDING));
+        assertFalse(OrderStatus.DELIVERED.canTransitionTo(OrderStatus.CANCELLED));
+    }
+
+    @Test
+    void onlyDeliveredAndCancelledAreTerminal() {
+        for (OrderStatus status : OrderStatus.values()) {
+            assertEquals(status == OrderStatus.DELIVERED || status == OrderStatus.CANCELLED, status.isTerminal(),
+                    status.name());
+        }
+    }
+
+    @Test
+    void predecessorsAreInverseOfTransitions() {
+        assertTrue(OrderStatus.PENDING.getPredecessors().isEmpty());
+        assertEquals(EnumSet.of(OrderStatus.PENDING), OrderStatus.PROCESSING.getPredecessors());
+        assertEquals(EnumSet.of(OrderStatus.PENDING, OrderStatus.PROCESSING, OrderStatus.SHIPPED),
+                OrderStatus.CANCELLED.getPredecessors());
+
+        for (OrderStatus from : OrderStatus.values()) {
+            for (OrderStatus to : OrderStatus.values()) {
+                assertEquals(from.canTransitionTo(to), to.getPredecessors().contains(from), from + " -> " + to);
+            }
+        }
+    }
+
+    @Test
+    void returnedSetsAreCopies() {
+        Set<OrderStatus> transitions = OrderStatus.PENDING.getAllowedTransitions();
+        transitions.clear();
+        assertTrue(OrderStatus.PENDING.canTransitionTo(OrderStatus.PROCESSING));
+
+        Set<OrderStatus> predecessors = OrderStatus.CANCELLED.getPredecessors();
+        predecessors.clear();
+        assertFalse(OrderStatus.CANCELLED.getPredecessors().isEmpty());
+    }
+
+    @Test
+    void fromCodeRoundTripsAndRejectsOutOfRange() {
+        for (OrderStatus status : OrderStatus.values()) {
+            assertSame(status, OrderStatus.fromCode(status.getCode()));
+        }
+        assertThrows(IllegalArgumentException.class, () -> OrderStatus.fromCode((short) -1));
+        assertThrows(IllegalArgumentException.class, () -> OrderStatus.fromCode((short) OrderStatus.values().length));
+        assertThrows(IllegalArgumentException.class, () -> OrderStatus.fromCode(Short.MAX_VALUE));
+    }
+
+    @Test
+    void fromValueIsCaseInsensitiveAndReturnsNullWhenUnknown() {
+        assertSame(OrderStatus.SHIPPED, OrderStatus.fromValue("shipped"));
+        assertSame(OrderStatus.SHIPPED, OrderStatus.fromValue(" SHIPPED "));
+        assertNull(OrderStatus.fromValue("returned"));
+        assertNull(OrderStatus.fromValue(null));
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.api_sell_clothes.Service;
+
+import com.example.api_sell_clothes.DTO.Checkout.CheckoutRequest;
+import com.example.api_sell_clothes.DTO.Checkout.CheckoutResponse;
+import com.example.api_sell_clothes.Entity.Categories;
+import com.example.api_sell_clothes.Entity.Products;
+import com.example.api_sell_clothes.Exception.Common.BaseException;
+import com.example.api_sell_clothes.Exception.Common.InsufficientStockException;
+import com.example.api_sell_clothes.Exception.Common.NotFoundException;
+import com.example.api_sell_clothes.Support.TestDataFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Kiểm tra việc trừ tồn kho khi đặt hàng với các transaction thật (không dùng @Transactional của test),
+ * để hai lần đặt hàng đồng thời thực sự tranh chấp khóa hàng trong DB.
+ */
+@SpringBootTest
+@Import(TestDataFactory.class)
+class CheckoutServiceTest {
+
+    @Autowired
+    private CheckoutService checkoutService;
+
+    @Autowired
+    private TestDataFactory testDataFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Categories category;
+
+    @BeforeEach
+    void setUp() {
+        category = testDataFactory.createCategory("Checkout");
+    }
+
+    @AfterEach
+    void tearDown() {
+        testDataFactory.cleanUp();
+    }
+
+    @Test
+    void concurrentCheckoutsForLastUnitOnlyOneSucceeds() throws Exception {
+        Products product = createProduct(1L);
+        Long firstUser = createUser();
+        Long secondUser = createUser();
+
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<CheckoutResponse>> results = new ArrayList<>();
+            for (Long userId : List.of(firstUser, secondUser)) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return checkoutService.checkout(userId, request(product.getProductId(), 1L));
+                }));
+            }
+            start.countDown();
+
+            int succeeded = 0;
+            int conflicts = 0;
+            for (Future<CheckoutResponse> result : results) {
+                try {
+                    result.get(30, TimeUnit.SECONDS);
+                    succeeded++;
+                } catch (ExecutionException e) {
+                    InsufficientStockException cause = assertInstanceOf(InsufficientStockException.class, e.getCause());
+                    assertEquals(HttpStatus.CONFLICT, cause.getStatus());
+                    conflicts++;
+                }
+            }
+
+            assertEquals(1, succeeded);
+            assertEquals(1, conflicts);
+            assertEquals(0L, stockOf(product));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void unknownProductReturnsNotFoundAndRollsBackOtherLines() {
+        Products first = createProduct(5L);
+        Products second = createProduct(5L);
+        Long userId = createUser();
+        long unknownProductId = jdbcTemplate.queryForObject(
+                "SELECT COALESCE(MAX(product_id), 0) + 1000 FROM products", Long.class);
+
+        CheckoutRequest request = CheckoutRequest.builder()
+                .items(List.of(
+                        new CheckoutRequest.CartItem(first.getProductId(), 2L),
+                        new CheckoutRequest.CartItem(second.getProductId(), 3L),
+                        new CheckoutRequest.CartItem(unknownProductId, 1L)))
+                .build();
+
+        BaseException exception = assertThrows(NotFoundException.class,
+                () -> checkoutService.checkout(userId, request));
+        assertEquals(HttpStatus.NOT_FOUND, exception.getStatus());
+
+        assertEquals(5L, stockOf(first));
+        assertEquals(5L, stockOf(second));
+        assertEquals(0L, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM orders WHERE user_id = ?", Long.class, userId));
+    }
+
+    private CheckoutRequest request(Long productId, Long quantity) {
+        return CheckoutRequest.builder()
+                .items(List.of(new CheckoutRequest.CartItem(productId, quantity)))
+                .build();
+    }
+
+    private Products createProduct(long stock) {
+        return testDataFactory.createProduct(category, stock);
+    }
+
+    private Long createUser() {
+        return testDataFactory.createUser("checkout").getUserId();
+    }
+
+    private Long stockOf(Products product) {
+        return jdbcTemplate.queryForObject("SELECT stock FROM products WHERE product_id = ?",
+                Long.class, product.getProductId());
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.api_sell_clothes.Service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CountMinSketchTest {
+
+    private static final int KEYS = 200;
+
+    @Test
+    void singleKeyIsCountedExactly() {
+        CountMinSketch sketch = new CountMinSketch(4, 64);
+        sketch.add(42L, 3);
+        sketch.add(42L, 4);
+
+        assertEquals(7L, sketch.estimate(42L));
+    }
+
+    @Test
+    void estimateNeverUnderCountsEvenWithHeavyCollisions() {
+        // 200 khóa trên 16 cột: va chạm ở mọi hàng
+        CountMinSketch sketch = new CountMinSketch(4, 16);
+        Map<Long, Long> trueCounts = new HashMap<>();
+        Random random = new Random(7);
+
+        for (int i = 0; i < 5000; i++) {
+            long key = random.nextInt(KEYS);
+            long count = 1 + random.nextInt(5);
+            sketch.add(key, count);
+            trueCounts.merge(key, count, Long::sum);
+        }
+
+        for (long key = 0; key < KEYS; key++) {
+            assertTrue(sketch.estimate(key) >= trueCounts.getOrDefault(key, 0L), "key " + key);
+        }
+    }
+
+    /**
+     * Conservative update chỉ nâng các ô lên tới ước lượng mới của khóa vừa thêm, nên ước lượng của khóa khác
+     * không bao giờ vượt quá max(ước lượng cũ của nó, ước lượng mới của khóa vừa thêm).
+     * Count-Min thông thường (cộng mọi ô) vi phạm tính chất này khi hai khóa chỉ va chạm ở một phần các hàng.
+     */
+    @Test
+    void conservativeUpdateRaisesCountersOnlyToNewEstimate() {
+        CountMinSketch sketch = new CountMinSketch(4, 16);
+        Random random = new Random(11);
+        long[] estimates = new long[KEYS];
+
+        for (int i = 0; i < 2000; i++) {
+            long key = random.nextInt(KEYS);
+            long count = 1 + random.nextInt(5);
+            long before = sketch.estimate(key);
+            sketch.add(key, count);
+
+            long added = sketch.estimate(key);
+            assertEquals(before + count, added);
+            for (int other = 0; other < KEYS; other++) {
+                long estimate = sketch.estimate(other);
+                assertTrue(estimate <= Math.max(estimates[other], added),
+                        "key " + other + " tăng vượt quá ước lượng của key " + key);
+                estimates[other] = estimate;
+            }
+        }
+    }
+
+    @Test
+    void clearResetsAllCounters() {
+        CountMinSketch sketch = new CountMinSketch(2, 8);
+        for (long key = 0; key < 50; key++) {
+            sketch.add(key, 10);
+        }
+        sketch.clear();
+
+        for (long key = 0; key < 50; key++) {
+            assertEquals(0L, sketch.estimate(key));
+        }
+    }
+
+    @Test
+    void widthOfOneStillWorks() {
+        CountMinSketch sketch = new CountMinSketch(1, 1);
+        sketch.add(1L, 2);
+        sketch.add(2L, 3);
+
+        assertEquals(5L, sketch.estimate(1L));
+        assertEquals(5L, sketch.estimate(2L));
+    }
+
+    @Test
+    void rejectsNonPositiveDimensions() {
+        assertThrows(IllegalArgumentException.class, () -> new CountMinSketch(0, 16));
+        assertThrows(IllegalArgumentException.class, () -> new CountMinSketch(4, 0));
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.api_sell_clothes.Service;
+
+import com.example.api_sell_clothes.Entity.*;
+import com.example.api_sell_clothes.Repository.OrderItemRepository;
+import com.example.api_sell_clothes.Repository.OrderRepository;
+import com.example.api_sell_clothes.Support.TestDataFactory;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Đếm số câu SQL khi lưu một đơn hàng kèm nhiều dòng hàng.
+ * <p>
+ * Với IDENTITY mỗi INSERT là một round trip riêng: đơn 10 dòng hàng = 11 câu INSERT.
+ * Với sequence pooled-lo + hibernate.jdbc.batch_size: tối đa 2 lần nextval và 2 batch INSERT (orders, order_items).
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import(TestDataFactory.class)
+@Transactional
+class OrderInsertBatchingTest {
+
+    private static final int ITEM_COUNT = 10;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private TestDataFactory testDataFactory;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private Users user;
+    private Products product;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        user = testDataFactory.createUser("batch");
+        product = testDataFactory.createProduct(testDataFactory.createCategory("Batch"), 100L);
+        entityManager.flush();
+    }
+
+    // Dữ liệu đã rollback cùng test, chỉ cần xóa danh sách id đã ghi nhận
+    @AfterEach
+    void tearDown() {
+        testDataFactory.cleanUp();
+    }
+
+    @Test
+    void orderWithItemsIsInsertedInBatches() {
+        statistics.clear();
+
+        Orders order = orderRepository.save(Orders.builder()
+                .user(user)
+                .status(OrderStatus.PENDING)
+                .totalAmount(BigDecimal.valueOf(ITEM_COUNT * 10L))
+                .build());
+
+        List<OrderItems> items = new ArrayList<>();
+        for (int i = 0; i < ITEM_COUNT; i++) {
+            items.add(OrderItems.builder()
+                    .orderId(order)
+                    .productId(product)
+                    .quantity(1L)
+                    .price(BigDecimal.TEN)
+                    .createdAt(LocalDateTime.now())
+                    .updatedAt(LocalDateTime.now())
+                    .build());
+        }
+        orderItemRepository.saveAll(items);
+        entityManager.flush();
+
+        assertEquals(ITEM_COUNT + 1, statistics.getEntityInsertCount());
+        assertTrue(statistics.getPrepareStatementCount() <= 4,
+                "Số câu SQL: " + statistics.getPrepareStatementCount() + ", JDBC batching có thể đã bị tắt");
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.api_sell_clothes.Service;
+
+import com.example.api_sell_clothes.Entity.Products;
+import com.example.api_sell_clothes.Repository.ProductRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class ProductSearchIndexTest {
+
+    private ProductRepository productRepository;
+    private ProductSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        productRepository = mock(ProductRepository.class);
+        index = new ProductSearchIndex(productRepository, mock(PlatformTransactionManager.class),
+                mock(EntityManager.class));
+    }
+
+    @Test
+    void syncRebuildsWhenStartupRebuildFailed() {
+        when(productRepository.streamAll())
+                .thenThrow(new DataAccessResourceFailureException("db down"))
+                .thenAnswer(invocation -> Stream.of(product(1L, "Áo sơ mi đỏ")));
+
+        index.rebuild();
+        assertFalse(index.isReady());
+
+        index.syncFromDatabase();
+        assertTrue(index.isReady());
+        assertEquals(List.of(1L), index.search("ao so mi", 0, 10).productIds());
+        verify(productRepository, never()).streamUpdatedSince(any());
+    }
+
+    @Test
+    void syncReadsAllIdsOnlyWhenRowsWereDeleted() {
+        when(productRepository.streamAll())
+                .thenAnswer(invocation -> Stream.of(product(1L, "Quần jean"), product(2L, "Quần kaki")));
+        when(productRepository.streamUpdatedSince(any(LocalDateTime.class)))
+                .thenAnswer(invocation -> Stream.empty());
+        index.rebuild();
+
+        when(productRepository.count()).thenReturn(2L);
+        index.syncFromDatabase();
+        verify(productRepository, never()).findAllProductIds();
+        assertEquals(2, index.search("quan", 0, 10).total());
+
+        when(productRepository.count()).thenReturn(1L);
+        when(productRepository.findAllProductIds()).thenReturn(List.of(1L));
+        index.syncFromDatabase();
+        assertEquals(List.of(1L), index.search("quan", 0, 10).productIds());
+    }
+
+    @Test
+    void productWithoutTermsStillCountsTowardsDeletionCheck() {
+        when(productRepository.streamAll())
+                .thenAnswer(invocation -> Stream.of(product(1L, "Áo thun"), product(2L, "")));
+        when(productRepository.streamUpdatedSince(any(LocalDateTime.class)))
+                .thenAnswer(invocation -> Stream.empty());
+        index.rebuild();
+
+        // Sản phẩm 1 bị xóa ở node khác, chỉ còn sản phẩm không có term nào
+        when(productRepository.count()).thenReturn(1L);
+        when(productRepository.findAllProductIds()).thenReturn(List.of(2L));
+        index.syncFromDatabase();
+        assertEquals(0, index.search("ao thun", 0, 10).total());
+    }
+
+    private static Products product(Long id, String name) {
+        return Products.builder()
+                .productId(id)
+                .productName(name)
+                .build();
+    }
+}
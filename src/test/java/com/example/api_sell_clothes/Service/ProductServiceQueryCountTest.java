@@ -0,0 +1,111 @@
+package com.example.api_sell_clothes.Service;
+
+import com.example.api_sell_clothes.DTO.Product.ProductFilterRequest;
+import com.example.api_sell_clothes.Entity.Categories;
+import com.example.api_sell_clothes.Entity.Products;
+import com.example.api_sell_clothes.Support.TestDataFactory;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Đếm số câu SQL mỗi endpoint đọc sản phẩm thực thi để phát hiện N+1 (ví dụ khởi tạo proxy Categories theo từng dòng)
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import(TestDataFactory.class)
+class ProductServiceQueryCountTest {
+
+    private static final int PRODUCT_COUNT = 5;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private TestDataFactory testDataFactory;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private Categories category;
+    private final List<Products> products = new ArrayList<>();
+    private String keyword;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        keyword = "qc" + TestDataFactory.uniqueSuffix();
+
+        // Tạo qua service: chỉ mục tìm kiếm và cây danh mục được cập nhật bằng event sau commit
+        category = testDataFactory.createCategory("Danh mục " + keyword);
+        for (int i = 0; i < PRODUCT_COUNT; i++) {
+            products.add(testDataFactory.createProduct(category, keyword + " áo " + i,
+                    "Sản phẩm kiểm thử " + keyword, BigDecimal.valueOf(150000 + i), 10L + i));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        testDataFactory.cleanUp();
+    }
+
+    @Test
+    void getAllProductsUsesSingleStatement() {
+        assertStatements(1, () -> productService.getAllProducts(null, PRODUCT_COUNT));
+    }
+
+    @Test
+    void getProductByIdUsesSingleStatement() {
+        assertStatements(1, () -> productService.getProductById(products.get(0).getProductId()));
+    }
+
+    @Test
+    void getProductsByCategoryUsesSingleStatement() {
+        assertStatements(1, () -> productService.getProductsByCategory(category.getCategoryId(), 0, PRODUCT_COUNT));
+    }
+
+    @Test
+    void searchProductsUsesSingleStatement() {
+        assertStatements(1, () -> productService.searchProducts(keyword, 0, PRODUCT_COUNT));
+    }
+
+    @Test
+    void getProductsByPriceRangeUsesSingleStatement() {
+        assertStatements(1, () -> productService.getProductsByPriceRange(
+                BigDecimal.valueOf(150000), BigDecimal.valueOf(150000 + PRODUCT_COUNT), 0, PRODUCT_COUNT));
+    }
+
+    @Test
+    void getProductsByStockUsesSingleStatement() {
+        assertStatements(1, () -> productService.getProductsByStock(10L, 0, PRODUCT_COUNT));
+    }
+
+    @Test
+    void filterProductsUsesPageAndFacetStatements() {
+        ProductFilterRequest filter = ProductFilterRequest.builder()
+                .categoryId(category.getCategoryId())
+                .minPrice(BigDecimal.valueOf(100000))
+                .size(PRODUCT_COUNT)
+                .build();
+        assertStatements(2, () -> productService.filterProducts(filter));
+    }
+
+    private void assertStatements(long expected, Runnable action) {
+        statistics.clear();
+        action.run();
+        assertEquals(expected, statistics.getPrepareStatementCount(),
+                "Số câu SQL không đúng, có thể đã xuất hiện N+1");
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.api_sell_clothes.Support;
+
+import com.example.api_sell_clothes.DTO.CategoriesDTO;
+import com.example.api_sell_clothes.DTO.ProductsDTO;
+import com.example.api_sell_clothes.Entity.Categories;
+import com.example.api_sell_clothes.Entity.Products;
+import com.example.api_sell_clothes.Entity.Users;
+import com.example.api_sell_clothes.Event.CategoryChangedEvent;
+import com.example.api_sell_clothes.Event.ProductChangedEvent;
+import com.example.api_sell_clothes.Repository.CategoryRepository;
+import com.example.api_sell_clothes.Repository.ProductRepository;
+import com.example.api_sell_clothes.Repository.UserRepository;
+import com.example.api_sell_clothes.Service.CategoryService;
+import com.example.api_sell_clothes.Service.ProductService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.test.context.TestComponent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Tạo dữ liệu kiểm thử có tên không trùng (hậu tố UUID) và dọn lại sau mỗi test.
+ * <p>
+ * Danh mục và sản phẩm được tạo qua service nên cây danh mục và chỉ mục tìm kiếm được cập nhật bằng chính
+ * các event sau commit như khi chạy thật. Khi dọn, event xóa được phát trong cùng transaction với câu DELETE.
+ * Dùng với {@code @Import(TestDataFactory.class)}.
+ */
+@TestComponent
+@RequiredArgsConstructor
+public class TestDataFactory {
+
+    private final CategoryService categoryService;
+    private final ProductService productService;
+    private final CategoryRepository categoryRepository;
+    private final ProductRepository productRepository;
+    private final UserRepository userRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final List<Long> userIds = new ArrayList<>();
+    private final List<Long> productIds = new ArrayList<>();
+    private final List<Long> categoryIds = new ArrayList<>();
+
+    public static String uniqueSuffix() {
+        return UUID.randomUUID().toString().replace("-", "").substring(0, 8);
+    }
+
+    public Users createUser(String prefix) {
+        String username = prefix + "_" + uniqueSuffix();
+        Users user = userRepository.save(Users.builder()
+                .username(username)
+                .email(username + "@example.com")
+                .password("x")
+                .enabled(true)
+                .build());
+        userIds.add(user.getUserId());
+        return user;
+    }
+
+    public Categories createCategory(String name) {
+        CategoriesDTO category = categoryService.createCategory(CategoriesDTO.builder()
+                .categoryName(name + " " + uniqueSuffix())
+                .build());
+        categoryIds.add(category.getCategoryId());
+        return categoryRepository.findById(category.getCategoryId()).orElseThrow();
+    }
+
+    public Products createProduct(Categories category, long stock) {
+        return createProduct(category, "Sản phẩm " + uniqueSuffix(), null, BigDecimal.TEN, stock);
+    }
+
+    // Tên được giữ nguyên để test có thể tìm theo từ khóa trong tên
+    public Products createProduct(Categories category, String name, String description, BigDecimal price, long stock) {
+        ProductsDTO product = productService.createProduct(ProductsDTO.builder()
+                .productName(name)
+                .productDescription(description)
+                .price(price)
+                .stock(stock)
+                .categoryId(category.getCategoryId())
+                .build());
+        productIds.add(product.getProductId());
+        return productRepository.findById(product.getProductId()).orElseThrow();
+    }
+
+    /**
+     * Xóa mọi dữ liệu đã tạo cùng đơn hàng của các user đó; bỏ qua dòng không còn (ví dụ test đã rollback)
+     */
+    public void cleanUp() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            for (Long userId : userIds) {
+                jdbcTemplate.update("DELETE FROM order_items WHERE order_id IN "
+                        + "(SELECT order_id FROM orders WHERE user_id = ?)", userId);
+                jdbcTemplate.update("DELETE FROM orders WHERE user_id = ?", userId);
+                jdbcTemplate.update("DELETE FROM users_roles WHERE user_id = ?", userId);
+                jdbcTemplate.update("DELETE FROM users WHERE user_id = ?", userId);
+            }
+            for (Long productId : productIds) {
+                jdbcTemplate.update("DELETE FROM products WHERE product_id = ?", productId);
+                eventPublisher.publishEvent(ProductChangedEvent.deleted(productId));
+            }
+            for (Long categoryId : categoryIds) {
+                jdbcTemplate.update("DELETE FROM categories WHERE category_id = ?", categoryId);
+                eventPublisher.publishEvent(new CategoryChangedEvent(categoryId));
+            }
+        });
+        userIds.clear();
+        productIds.clear();
+        categoryIds.clear();
+    }
+}
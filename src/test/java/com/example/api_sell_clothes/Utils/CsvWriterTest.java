@@ -0,0 +1,71 @@
+package com.example.api_sell_clothes.Utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CsvWriterTest {
+
+    @Test
+    void plainFieldsAreWrittenAsIsWithCrlf() throws IOException {
+        assertEquals("1,abc,12.50\r\n", write(1L, "abc", new BigDecimal("12.50")));
+    }
+
+    @Test
+    void nullFieldIsEmpty() throws IOException {
+        assertEquals("a,,c\r\n", write("a", null, "c"));
+    }
+
+    @Test
+    void emptyStringIsEmptyUnquoted() throws IOException {
+        assertEquals(",x\r\n", write("", "x"));
+    }
+
+    @Test
+    void fieldWithCommaIsQuoted() throws IOException {
+        assertEquals("\"a,b\",c\r\n", write("a,b", "c"));
+    }
+
+    @Test
+    void quotesAreDoubledInsideQuotedField() throws IOException {
+        assertEquals("\"say \"\"hi\"\"\"\r\n", write("say \"hi\""));
+    }
+
+    @Test
+    void lineBreaksAreQuoted() throws IOException {
+        assertEquals("\"line1\nline2\",\"a\rb\"\r\n", write("line1\nline2", "a\rb"));
+    }
+
+    @Test
+    void leadingAndTrailingSpacesArePreserved() throws IOException {
+        assertEquals(" a ,b\r\n", write(" a ", "b"));
+    }
+
+    @Test
+    void unicodeIsWrittenUnchanged() throws IOException {
+        assertEquals("Áo sơ mi đỏ\r\n", write("Áo sơ mi đỏ"));
+    }
+
+    @Test
+    void recordsAreWrittenSequentially() throws IOException {
+        StringWriter out = new StringWriter();
+        CsvWriter csv = new CsvWriter(out);
+        csv.writeRecord("id", "name");
+        csv.writeRecord(1, "x");
+        csv.flush();
+
+        assertEquals("id,name\r\n1,x\r\n", out.toString());
+    }
+
+    private static String write(Object... fields) throws IOException {
+        StringWriter out = new StringWriter();
+        CsvWriter csv = new CsvWriter(out);
+        csv.writeRecord(fields);
+        csv.flush();
+        return out.toString();
+    }
+}
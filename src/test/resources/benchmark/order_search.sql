@@ -0,0 +1,126 @@
+-- So sánh truy vấn tìm kiếm đơn hàng (GET /api/v1/orders/search) trước và sau khi chuyển sang Specification.
+-- Chạy trên một database PostgreSQL riêng (mất vài phút để seed 10M dòng):
+--   psql -d bench -f src/test/resources/benchmark/order_search.sql > order_search.out
+-- Dữ liệu nằm trong schema "bench" nên không ảnh hưởng bảng của ứng dụng; xóa bằng DROP SCHEMA bench CASCADE.
+
+\timing on
+SET client_min_messages = warning;
+
+DROP SCHEMA IF EXISTS bench CASCADE;
+CREATE SCHEMA bench;
+SET search_path = bench;
+
+-- Cùng cấu trúc cột với bảng của ứng dụng (chỉ giữ các cột truy vấn dùng tới)
+CREATE TABLE users (
+    user_id   bigint PRIMARY KEY,
+    username  varchar(255) NOT NULL
+);
+
+CREATE TABLE orders (
+    order_id     bigint PRIMARY KEY,
+    user_id      bigint NOT NULL REFERENCES users (user_id),
+    order_date   timestamp,
+    status       smallint NOT NULL,
+    total_amount numeric(10, 2) NOT NULL,
+    version      bigint NOT NULL DEFAULT 0,
+    created_at   timestamp,
+    updated_at   timestamp
+);
+
+-- 100k người dùng, 10M đơn hàng trải đều trong 3 năm; trạng thái lệch về DELIVERED(3) như dữ liệu thực
+INSERT INTO users (user_id, username)
+SELECT g, 'user' || g
+FROM generate_series(1, 100000) g;
+
+INSERT INTO orders (order_id, user_id, order_date, status, total_amount, created_at, updated_at)
+SELECT g,
+       1 + (random() * 99999)::bigint,
+       d,
+       CASE
+           WHEN r < 0.05 THEN 0
+           WHEN r < 0.10 THEN 1
+           WHEN r < 0.15 THEN 2
+           WHEN r < 0.95 THEN 3
+           ELSE 4
+       END,
+       round((random() * 5000000)::numeric, 2),
+       d,
+       d
+FROM (SELECT g,
+             random() AS r,
+             timestamp '2022-01-01' + random() * interval '3 years' AS d
+      FROM generate_series(1, 10000000) g) s;
+
+CREATE INDEX idx_orders_status_order_date ON orders (status, order_date);
+CREATE INDEX idx_orders_user_order_date ON orders (user_id, order_date);
+VACUUM ANALYZE users;
+VACUUM ANALYZE orders;
+
+-- ========== Trước: (:x IS NULL OR col = :x) với plan generic ==========
+-- Sau 5 lần thực thi, PgJDBC dùng prepared statement phía server và PostgreSQL có thể chuyển sang plan generic;
+-- force_generic_plan tái hiện trường hợp đó ngay lập tức.
+SET plan_cache_mode = force_generic_plan;
+
+PREPARE old_search(bigint, smallint, timestamp, timestamp, int, int) AS
+SELECT o.*
+FROM orders o
+WHERE ($1 IS NULL OR o.user_id = $1)
+  AND ($2 IS NULL OR o.status = $2)
+  AND ($3 IS NULL OR o.order_date >= $3)
+  AND ($4 IS NULL OR o.order_date <= $4)
+ORDER BY o.order_date DESC, o.order_id DESC
+LIMIT $5 OFFSET $6;
+
+PREPARE old_count(bigint, smallint, timestamp, timestamp) AS
+SELECT count(o.order_id)
+FROM orders o
+WHERE ($1 IS NULL OR o.user_id = $1)
+  AND ($2 IS NULL OR o.status = $2)
+  AND ($3 IS NULL OR o.order_date >= $3)
+  AND ($4 IS NULL OR o.order_date <= $4);
+
+-- 1. Lọc theo user
+EXPLAIN (ANALYZE, BUFFERS) EXECUTE old_search(4242, NULL, NULL, NULL, 20, 0);
+EXPLAIN (ANALYZE, BUFFERS) EXECUTE old_count(4242, NULL, NULL, NULL);
+-- 2. Lọc theo user trong một tháng
+EXPLAIN (ANALYZE, BUFFERS) EXECUTE old_search(4242, NULL, '2024-03-01', '2024-03-31', 20, 0);
+EXPLAIN (ANALYZE, BUFFERS) EXECUTE old_count(4242, NULL, '2024-03-01', '2024-03-31');
+-- 3. Lọc theo trạng thái hiếm (PENDING) trong một tuần
+EXPLAIN (ANALYZE, BUFFERS) EXECUTE old_search(NULL, 0::smallint, '2024-03-01', '2024-03-08', 20, 0);
+EXPLAIN (ANALYZE, BUFFERS) EXECUTE old_count(NULL, 0::smallint, '2024-03-01', '2024-03-08');
+
+RESET plan_cache_mode;
+
+-- ========== Sau: chỉ các điều kiện được truyền (SQL do Specification sinh ra) ==========
+-- Page: truy vấn trang kèm COUNT; Slice (/search/slice): chỉ truy vấn trang với LIMIT size + 1.
+
+-- 1. Lọc theo user
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT o.*, u.username FROM orders o JOIN users u ON u.user_id = o.user_id
+WHERE o.user_id = 4242
+ORDER BY o.order_date DESC, o.order_id DESC
+LIMIT 21;
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT count(o.order_id) FROM orders o WHERE o.user_id = 4242;
+
+-- 2. Lọc theo user trong một tháng
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT o.*, u.username FROM orders o JOIN users u ON u.user_id = o.user_id
+WHERE o.user_id = 4242 AND o.order_date >= '2024-03-01' AND o.order_date <= '2024-03-31'
+ORDER BY o.order_date DESC, o.order_id DESC
+LIMIT 21;
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT count(o.order_id) FROM orders o
+WHERE o.user_id = 4242 AND o.order_date >= '2024-03-01' AND o.order_date <= '2024-03-31';
+
+-- 3. Lọc theo trạng thái hiếm (PENDING) trong một tuần
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT o.*, u.username FROM orders o JOIN users u ON u.user_id = o.user_id
+WHERE o.status = 0 AND o.order_date >= '2024-03-01' AND o.order_date <= '2024-03-08'
+ORDER BY o.order_date DESC, o.order_id DESC
+LIMIT 21;
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT count(o.order_id) FROM orders o
+WHERE o.status = 0 AND o.order_date >= '2024-03-01' AND o.order_date <= '2024-03-08';
+
+DEALLOCATE ALL;